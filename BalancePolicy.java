@@ -0,0 +1,286 @@
+import java.io.Serializable;
+
+/**
+ * This interface decides how far out of balance a
+ * StudentTreeSet may grow before part of it is rebuilt.
+ * A node may be placed no deeper than the range factor
+ * times the height of a perfectly balanced tree of the
+ * same size, which is never taken to be less than the
+ * minimum height. A small range factor keeps the tree low,
+ * so searches are short, at the cost of more rebuilds while
+ * adding. A large one rebuilds less often and lets searches
+ * run longer.
+ *
+ * An adaptive policy is asked for a new range factor from
+ * time to time, with the number of searches and changes the
+ * tree has seen. The new bound applies from the next add
+ * on: an add placed deeper than it rebuilds the unbalanced
+ * part of the tree, and nothing is rebuilt before that.
+ *
+ * Policies are values: two built by fixed() or adaptive()
+ * with the same arguments are equal, and a built-in policy
+ * read back from a stream is the same constant again.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ */
+public interface BalancePolicy extends Serializable {
+
+	/**
+	 * The policy of a tree created without one. A node may
+	 * be placed 1.75 times as deep as in a balanced tree.
+	 */
+	BalancePolicy DEFAULT = new Fixed( 1.75, 3 );
+
+	/**
+	 * A tight bound for read mostly trees. A node may be
+	 * placed 1.25 times as deep as in a balanced tree.
+	 */
+	BalancePolicy EAGER = new Fixed( 1.25, 3 );
+
+	/**
+	 * A loose bound for write mostly trees. A node may be
+	 * placed 2.5 times as deep as in a balanced tree, and
+	 * trees of fewer than 64 elements are taken to be 6
+	 * high, so small trees are hardly ever rebuilt.
+	 */
+	BalancePolicy LAZY = new Fixed( 2.5, 6 );
+
+	/**
+	 * A bound that moves between those of EAGER and LAZY
+	 * with the share of changes among the operations.
+	 */
+	BalancePolicy ADAPTIVE = new Adaptive( 1.25, 2.5, 3 );
+
+	/**
+	 * Returns the height a tree is taken to have while a
+	 * balanced tree of its size would be lower.
+	 * @return   int   the minimum height, at least 1
+	 */
+	int minHeight();
+
+	/**
+	 * Returns the range factor a new tree starts with.
+	 * @return   double   the range factor, greater than 1
+	 */
+	double rangeFactor();
+
+	/**
+	 * Returns true if the tree should count its searches
+	 * and changes and ask for a new range factor from time
+	 * to time. A fixed policy returns false, and the tree
+	 * then counts nothing.
+	 * @return   boolean   true if the range factor may change
+	 */
+	default boolean adaptive() {
+		return false;
+	}
+
+	/**
+	 * This method returns the range factor to use from
+	 * now on, given the recent searches and changes of the
+	 * tree. By default it is the starting range factor.
+	 * @param    reads    the number of recent searches
+	 * @param    writes   the number of recent changes
+	 * @return   double   the range factor, greater than 1
+	 */
+	default double rangeFactor( long reads, long writes ) {
+		return rangeFactor();
+	}
+
+	/**
+	 * This method returns a policy with a fixed range factor.
+	 * @param    rangeFactor     the range factor, greater than 1
+	 * @param    minHeight       the minimum height, at least 1
+	 * @return   BalancePolicy   the policy
+	 * @throws   IllegalArgumentException   if either is out of range
+	 */
+	static BalancePolicy fixed( double rangeFactor, int minHeight ) {
+		return new Fixed( rangeFactor, minHeight );
+	}
+
+	/**
+	 * This method returns a policy whose range factor moves
+	 * in a straight line from readFactor, when the tree is only
+	 * searched, to writeFactor, when it is only changed.
+	 * @param    readFactor      the range factor of a read only tree
+	 * @param    writeFactor     the range factor of a write only tree
+	 * @param    minHeight       the minimum height, at least 1
+	 * @return   BalancePolicy   the policy
+	 * @throws   IllegalArgumentException   if any is out of range
+	 */
+	static BalancePolicy adaptive( double readFactor, double writeFactor, int minHeight ) {
+		return new Adaptive( readFactor, writeFactor, minHeight );
+	}
+
+	/**
+	 * A policy with a range factor that never changes.
+	 */
+	final class Fixed implements BalancePolicy {
+
+		private static final long serialVersionUID = 1L;
+
+		// The range factor and the minimum height
+		private final double rangeFactor;
+		private final int minHeight;
+
+		/**
+		 * The constructor.
+		 * @param    rangeFactor   the range factor, greater than 1
+		 * @param    minHeight     the minimum height, at least 1
+		 * @throws   IllegalArgumentException   if either is out of range
+		 */
+		Fixed( double rangeFactor, int minHeight ) {
+			if( !( rangeFactor > 1 ) ) {
+				throw new IllegalArgumentException( "rangeFactor must be greater than 1" );
+			}
+			if( minHeight < 1 ) {
+				throw new IllegalArgumentException( "minHeight must be at least 1" );
+			}
+			this.rangeFactor = rangeFactor;
+			this.minHeight = minHeight;
+		}
+
+		public int minHeight() {
+			return minHeight;
+		}
+
+		public double rangeFactor() {
+			return rangeFactor;
+		}
+
+		/**
+		 * Two fixed policies are equal if they have the
+		 * same range factor and minimum height.
+		 * @param    object    the object to compare to
+		 * @return   boolean   true if the policies are equal
+		 */
+		public boolean equals( Object object ) {
+			if( !( object instanceof Fixed ) ) {
+				return false;
+			}
+			Fixed other = ( Fixed ) object;
+			return Double.compare( rangeFactor, other.rangeFactor ) == 0
+					&& minHeight == other.minHeight;
+		}
+
+		public int hashCode() {
+			return 31 * Double.hashCode( rangeFactor ) + minHeight;
+		}
+
+		public String toString() {
+			return "fixed(" + rangeFactor + ", " + minHeight + ")";
+		}
+
+		/**
+		 * This method replaces a policy read from a stream
+		 * with the constant it equals, if any, so that a
+		 * reloaded tree still reports DEFAULT, EAGER or LAZY.
+		 * @return   Object   the constant, or this policy
+		 */
+		private Object readResolve() {
+			for( BalancePolicy constant : new BalancePolicy[] { DEFAULT, EAGER, LAZY } ) {
+				if( equals( constant ) ) {
+					return constant;
+				}
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * A policy with a range factor that follows
+	 * the share of changes among the operations.
+	 */
+	final class Adaptive implements BalancePolicy {
+
+		private static final long serialVersionUID = 1L;
+
+		// The range factors of a read only
+		// and a write only tree
+		private final double readFactor;
+		private final double writeFactor;
+
+		// The minimum height
+		private final int minHeight;
+
+		/**
+		 * The constructor.
+		 * @param    readFactor    the range factor of a read only tree
+		 * @param    writeFactor   the range factor of a write only tree
+		 * @param    minHeight     the minimum height, at least 1
+		 * @throws   IllegalArgumentException   if any is out of range
+		 */
+		Adaptive( double readFactor, double writeFactor, int minHeight ) {
+			if( !( readFactor > 1 ) || !( writeFactor > 1 ) ) {
+				throw new IllegalArgumentException( "rangeFactor must be greater than 1" );
+			}
+			if( minHeight < 1 ) {
+				throw new IllegalArgumentException( "minHeight must be at least 1" );
+			}
+			this.readFactor = readFactor;
+			this.writeFactor = writeFactor;
+			this.minHeight = minHeight;
+		}
+
+		public int minHeight() {
+			return minHeight;
+		}
+
+		/**
+		 * Returns the range factor of a tree that has
+		 * seen as many searches as changes.
+		 * @return   double   the starting range factor
+		 */
+		public double rangeFactor() {
+			return ( readFactor + writeFactor ) / 2;
+		}
+
+		public boolean adaptive() {
+			return true;
+		}
+
+		public double rangeFactor( long reads, long writes ) {
+			if( reads + writes == 0 ) {
+				return rangeFactor();
+			}
+			double share = (double) writes / ( reads + writes );
+			return readFactor + ( writeFactor - readFactor ) * share;
+		}
+
+		/**
+		 * Two adaptive policies are equal if they have the
+		 * same range factors and minimum height.
+		 * @param    object    the object to compare to
+		 * @return   boolean   true if the policies are equal
+		 */
+		public boolean equals( Object object ) {
+			if( !( object instanceof Adaptive ) ) {
+				return false;
+			}
+			Adaptive other = ( Adaptive ) object;
+			return Double.compare( readFactor, other.readFactor ) == 0
+					&& Double.compare( writeFactor, other.writeFactor ) == 0
+					&& minHeight == other.minHeight;
+		}
+
+		public int hashCode() {
+			int hash = Double.hashCode( readFactor );
+			hash = 31 * hash + Double.hashCode( writeFactor );
+			return 31 * hash + minHeight;
+		}
+
+		public String toString() {
+			return "adaptive(" + readFactor + ", " + writeFactor + ", " + minHeight + ")";
+		}
+
+		/**
+		 * This method replaces a policy read from a stream
+		 * with ADAPTIVE if it equals it, so that a reloaded
+		 * tree still reports the constant.
+		 * @return   Object   ADAPTIVE, or this policy
+		 */
+		private Object readResolve() {
+			return equals( ADAPTIVE ) ? ADAPTIVE : this;
+		}
+	}
+}
@@ -0,0 +1,466 @@
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread safe set backed by a StudentTreeSet. Writes
+ * are serialized by the write lock of a StampedLock, so only
+ * one thread changes the tree at a time. Reads do not lock:
+ * contains(), first() and last() walk the tree under an
+ * optimistic read stamp, and only if a write overlapped the
+ * walk do they walk it again under the read lock. An add,
+ * a removal or a rebuild runs entirely under the write lock,
+ * so a reader holding the read lock sees the tree before or
+ * after it. An optimistic reader has no such guarantee: if it
+ * overlaps a write it may see half linked nodes in any state.
+ * Its answer is only used if validate() shows that no write
+ * started since its stamp was taken, its walk is limited to
+ * the height of the tree so a cycle cannot trap it, and any
+ * exception it throws is ignored unless the stamp is still
+ * valid.
+ *
+ * Iterators walk a snapshot of the tree, which later writes
+ * never change. Iterators created between two writes share
+ * one snapshot. The first write after a snapshot copies the
+ * nodes on its path, so a workload that alternates writes and
+ * iterations pays that copy once per iteration.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ *
+ * @param    <E>   this set only accepts objects of
+ *                 type E where type E is any class that
+ *                 implements the Comparable interface.
+ */
+public class ConcurrentStudentTreeSet < E extends Comparable < E > >
+								extends AbstractSet < E > {
+
+	// The tree holding the elements. It rebuilds only the
+	// unbalanced subtree, so writers hold the lock briefly.
+	private final StudentTreeSet<E> tree = new StudentTreeSet<E>( true );
+
+	// Serializes the writers and validates the readers
+	private final StampedLock lock = new StampedLock();
+
+	// The last snapshot taken, and the modification count
+	// of the tree when it was taken. Until the tree changes
+	// again it is handed out instead of a new one, since each
+	// new snapshot makes the next write copy its whole path.
+	// Both are only read or written while holding the lock.
+	private NavigableSet<E> lastSnapshot;
+	private int snapshotModCount;
+
+	// Returned by a walk that took more steps than
+	// the tree is high, because a write overlapped it
+	private static final Object GAVE_UP = new Object();
+
+	/**
+	 * This method returns how many nodes a walk from the
+	 * root may visit before it must have overlapped a write.
+	 * @return   int   the largest number of steps
+	 */
+	private int steps() {
+		return tree.currentHeight + 2;
+	}
+
+	/**
+	 * This method walks the tree looking for an object,
+	 * without locking.
+	 * @param    object   the object we are looking for
+	 * @return   Object   Boolean.TRUE or Boolean.FALSE, or
+	 *                    GAVE_UP if the walk was too long
+	 */
+	private Object search( Object object ) {
+		int steps = steps();
+		Node<E> node = tree.root;
+		while( node != null ) {
+			if( --steps < 0 ) {
+				return GAVE_UP;
+			}
+			int comparison = tree.compare( object, node.data );
+			if( comparison == 0 ) {
+				return Boolean.TRUE;
+			}
+			node = comparison < 0 ? node.left : node.right;
+		}
+		return Boolean.FALSE;
+	}
+
+	/**
+	 * This method walks the tree looking for the smallest
+	 * element greater than the given one, without locking.
+	 * @param    after    the element to start after, or null
+	 *                    for the smallest element of the tree
+	 * @return   Object   the element found, null if there is
+	 *                    none, or GAVE_UP if the walk was too long
+	 */
+	private Object successor( E after ) {
+		int steps = steps();
+		Node<E> node = tree.root;
+		E best = null;
+		while( node != null ) {
+			if( --steps < 0 ) {
+				return GAVE_UP;
+			}
+			if( after == null || tree.compare( after, node.data ) < 0 ) {
+				best = node.data;
+				node = node.left;
+			}
+			else{
+				node = node.right;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * This method walks the tree looking for the largest
+	 * element, without locking.
+	 * @return   Object   the element found, null if the tree is
+	 *                    empty, or GAVE_UP if the walk was too long
+	 */
+	private Object highest() {
+		int steps = steps();
+		Node<E> node = tree.root;
+		E best = null;
+		while( node != null ) {
+			if( --steps < 0 ) {
+				return GAVE_UP;
+			}
+			best = node.data;
+			node = node.right;
+		}
+		return best;
+	}
+
+	/**
+	 * This method runs one of the walks above under an
+	 * optimistic read stamp. If a write overlapped it, the
+	 * walk is repeated while holding the read lock.
+	 * @param    walk      0 to search for the argument,
+	 *                     1 for its successor, 2 for the
+	 *                     largest element
+	 * @param    argument  the argument of the walk
+	 * @return   Object    the result of the walk
+	 */
+	@SuppressWarnings("unchecked")
+	private Object read( int walk, Object argument ) {
+		long stamp = lock.tryOptimisticRead();
+		if( stamp != 0 ) {
+			Object result;
+			try {
+				result = walk( walk, argument );
+			}
+			catch( RuntimeException e ) {
+
+				// An exception from a consistent tree is real,
+				// any other is caused by the overlapping write
+				if( lock.validate( stamp ) ) {
+					throw e;
+				}
+				result = GAVE_UP;
+			}
+			if( result != GAVE_UP && lock.validate( stamp ) ) {
+				return result;
+			}
+		}
+
+		// Walk again with the writers locked out
+		stamp = lock.readLock();
+		try {
+			return walk( walk, argument );
+		}
+		finally {
+			lock.unlockRead( stamp );
+		}
+	}
+
+	/**
+	 * This method runs one of the walks above.
+	 * @param    walk      which walk to run, as for read()
+	 * @param    argument  the argument of the walk
+	 * @return   Object    the result of the walk
+	 */
+	@SuppressWarnings("unchecked")
+	private Object walk( int walk, Object argument ) {
+		switch( walk ) {
+		case 0:
+			return search( argument );
+		case 1:
+			return successor( ( E ) argument );
+		default:
+			return highest();
+		}
+	}
+
+	/**
+	 * This method determines if an object exists in the
+	 * set without taking a lock, unless a write overlaps.
+	 * @param    object    the object we are looking for
+	 * @return   boolean   true the set contains the
+	 *                     given object, false otherwise
+	 */
+	public boolean contains( Object object ) {
+		return read( 0, object ) == Boolean.TRUE;
+	}
+
+	/**
+	 * Returns the smallest element in the set.
+	 * @return   E   the smallest element
+	 * @throws   NoSuchElementException   if the set is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E first() {
+		E e = ( E ) read( 1, null );
+		if( e == null ) {
+			throw new NoSuchElementException();
+		}
+		return e;
+	}
+
+	/**
+	 * Returns the largest element in the set.
+	 * @return   E   the largest element
+	 * @throws   NoSuchElementException   if the set is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E last() {
+		E e = ( E ) read( 2, null );
+		if( e == null ) {
+			throw new NoSuchElementException();
+		}
+		return e;
+	}
+
+	/**
+	 * Returns the size of the set.
+	 * @return   int   the number of elements in the set
+	 */
+	public int size() {
+		long stamp = lock.tryOptimisticRead();
+		int size = tree.size();
+		if( !lock.validate( stamp ) ) {
+			stamp = lock.readLock();
+			try {
+				size = tree.size();
+			}
+			finally {
+				lock.unlockRead( stamp );
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * This method adds an element to the set,
+	 * holding the write lock.
+	 * @param    e         the element to add
+	 * @return   boolean   true if it was added,
+	 *                     false if it was already there
+	 */
+	public boolean add( E e ) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.add( e );
+		}
+		finally {
+			lock.unlockWrite( stamp );
+		}
+	}
+
+	/**
+	 * This method adds every element of a collection
+	 * to the set, holding the write lock once.
+	 * @param    collection   the elements to add
+	 * @return   boolean      true if any element was added
+	 */
+	public boolean addAll( Collection<? extends E> collection ) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.addAll( collection );
+		}
+		finally {
+			lock.unlockWrite( stamp );
+		}
+	}
+
+	/**
+	 * This method removes an object from the set,
+	 * holding the write lock.
+	 * @param    object    the object to remove
+	 * @return   boolean   true if it was removed
+	 */
+	public boolean remove( Object object ) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.remove( object );
+		}
+		finally {
+			lock.unlockWrite( stamp );
+		}
+	}
+
+	/**
+	 * This method clears the set, holding the write lock.
+	 */
+	public void clear() {
+		long stamp = lock.writeLock();
+		try {
+			tree.clear();
+		}
+		finally {
+			lock.unlockWrite( stamp );
+		}
+	}
+
+	/**
+	 * Returns an unmodifiable view of the set as it is now.
+	 * If the set has not changed since the last snapshot,
+	 * that one is returned under the read lock. Otherwise a
+	 * new one is taken, holding the write lock for O( 1 )
+	 * time, and the next write copies the nodes on its path
+	 * instead of changing the ones the snapshot holds.
+	 * @return   NavigableSet<E>   the snapshot
+	 */
+	public NavigableSet<E> snapshot() {
+		long stamp = lock.readLock();
+		try {
+			if( lastSnapshot != null && snapshotModCount == tree.modCount ) {
+				return lastSnapshot;
+			}
+		}
+		finally {
+			lock.unlockRead( stamp );
+		}
+		stamp = lock.writeLock();
+		try {
+			if( lastSnapshot == null || snapshotModCount != tree.modCount ) {
+				lastSnapshot = tree.snapshot();
+				snapshotModCount = tree.modCount;
+			}
+			return lastSnapshot;
+		}
+		finally {
+			lock.unlockWrite( stamp );
+		}
+	}
+
+	/**
+	 * This method returns an iterator over the set in
+	 * ascending order. It walks a snapshot of the set, so
+	 * it takes no lock after it is created, returns the set
+	 * as it was at that moment, and never throws a concurrent
+	 * modification error.
+	 * @return   Iterator<E>   the iterator
+	 */
+	public Iterator<E> iterator() {
+		final Iterator<E> elements = snapshot().iterator();
+		return new Iterator<E>() {
+
+			// The element returned by the last call to next()
+			E last;
+
+			public boolean hasNext() {
+				return elements.hasNext();
+			}
+
+			public E next() {
+				last = elements.next();
+				return last;
+			}
+
+			public void remove() {
+				if( last == null ) {
+					throw new IllegalStateException();
+				}
+				ConcurrentStudentTreeSet.this.remove( last );
+				last = null;
+			}
+		};
+	}
+
+	/**
+	 * The main method. It has several threads read the
+	 * set while one thread writes to it.
+	 * @param   args   command line arguments ( not used )
+	 * @throws  InterruptedException   if the main thread
+	 *                                 is interrupted
+	 */
+	public static void main( String [] args ) throws InterruptedException {
+		final ConcurrentStudentTreeSet<Integer> set = new ConcurrentStudentTreeSet<Integer>();
+
+		// The even numbers are always in the set
+		for( int integer = 0; integer < 100000; integer += 2 ) {
+			set.add( integer );
+		}
+
+		// The writer adds and removes the odd numbers
+		Thread writer = new Thread( new Runnable() {
+			public void run() {
+				for( int round = 0; round < 5; round++ ) {
+					for( int integer = 1; integer < 100000; integer += 2 ) {
+						set.add( integer );
+					}
+					for( int integer = 1; integer < 100000; integer += 2 ) {
+						set.remove( integer );
+					}
+				}
+			}
+		} );
+
+		// The readers check that the even numbers are
+		// always found while the writer runs
+		final int[] missing = new int[1];
+		Thread[] readers = new Thread[4];
+		for( int reader = 0; reader < readers.length; reader++ ) {
+			readers[reader] = new Thread( new Runnable() {
+				public void run() {
+					for( int round = 0; round < 10; round++ ) {
+						for( int integer = 0; integer < 100000; integer += 2 ) {
+							if( !set.contains( integer ) ) {
+								synchronized( missing ) {
+									missing[0]++;
+								}
+							}
+						}
+					}
+				}
+			} );
+		}
+		writer.start();
+		for( Thread reader : readers ) {
+			reader.start();
+		}
+		writer.join();
+		for( Thread reader : readers ) {
+			reader.join();
+		}
+
+		System.out.println( "Missing reads: " + missing[0] );   // 0
+		System.out.println( "Number of elements: " + set.size() );   // 50000
+		System.out.println( set.first() + " " + set.last() );   // 0 99998
+
+		// Test that an iterator returns the set as it was
+		// when it was created, while the set changes
+		Iterator<Integer> iter = set.iterator();
+		set.add( -1 );
+		set.remove( 0 );
+		int count = 0;
+		while( iter.hasNext() ) {
+			iter.next();
+			count++;
+		}
+		System.out.println( count + " " + set.first() );   // 50000 -1
+
+		// Test that snapshots are shared until the next write,
+		// and that a failed add does not count as a write
+		NavigableSet<Integer> before = set.snapshot();
+		set.add( -1 );
+		System.out.print( ( before == set.snapshot() ) + " " );   // true
+		set.add( -2 );
+		NavigableSet<Integer> after = set.snapshot();
+		System.out.println( ( before == after ) + " " + before.size() + " " + after.size() );   // false 50000 50001
+	}
+}
@@ -0,0 +1,91 @@
+import java.nio.ByteBuffer;
+
+/**
+ * This interface turns elements into a fixed number of
+ * bytes and back, so a set can keep them outside the Java
+ * heap. Every element takes exactly width() bytes. Searching
+ * compares an element against the bytes of a stored one, and
+ * a codec for a primitive type compares the bytes directly
+ * rather than creating an object for every comparison.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ *
+ * @param    <E>   the type of the elements, which is any
+ *                 class that implements the Comparable interface
+ */
+public interface ElementCodec < E extends Comparable < E > > {
+
+	/**
+	 * A codec for Integer values, in 4 bytes.
+	 */
+	ElementCodec<Integer> INTEGER = new ElementCodec<Integer>() {
+		public int width() {
+			return 4;
+		}
+		public void write( ByteBuffer buffer, int offset, Integer e ) {
+			buffer.putInt( offset, e );
+		}
+		public Integer read( ByteBuffer buffer, int offset ) {
+			return buffer.getInt( offset );
+		}
+		public int compare( Integer e, ByteBuffer buffer, int offset ) {
+			return Integer.compare( e, buffer.getInt( offset ) );
+		}
+	};
+
+	/**
+	 * A codec for Long values, in 8 bytes.
+	 */
+	ElementCodec<Long> LONG = new ElementCodec<Long>() {
+		public int width() {
+			return 8;
+		}
+		public void write( ByteBuffer buffer, int offset, Long e ) {
+			buffer.putLong( offset, e );
+		}
+		public Long read( ByteBuffer buffer, int offset ) {
+			return buffer.getLong( offset );
+		}
+		public int compare( Long e, ByteBuffer buffer, int offset ) {
+			return Long.compare( e, buffer.getLong( offset ) );
+		}
+	};
+
+	/**
+	 * Returns the number of bytes every element takes.
+	 * The sets accept widths from 1 to 1024 bytes.
+	 * @return   int   the width of an element in bytes
+	 */
+	int width();
+
+	/**
+	 * This method writes an element into a buffer.
+	 * @param    buffer   the buffer to write to
+	 * @param    offset   the index of the first byte
+	 * @param    e        the element to write
+	 */
+	void write( ByteBuffer buffer, int offset, E e );
+
+	/**
+	 * This method reads an element from a buffer.
+	 * @param    buffer   the buffer to read from
+	 * @param    offset   the index of the first byte
+	 * @return   E        the element
+	 */
+	E read( ByteBuffer buffer, int offset );
+
+	/**
+	 * This method compares an element with the one stored
+	 * in a buffer. By default the stored element is read
+	 * and compared with the natural ordering.
+	 * @param    e        the element to compare
+	 * @param    buffer   the buffer holding the other element
+	 * @param    offset   the index of its first byte
+	 * @return   int      a negative number, zero or a positive
+	 *                    number as e is less than, equal to or
+	 *                    greater than the stored element
+	 */
+	default int compare( E e, ByteBuffer buffer, int offset ) {
+		return e.compareTo( read( buffer, offset ) );
+	}
+}
@@ -0,0 +1,160 @@
+import java.util.AbstractSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A read only set of int values held in one int array in
+ * Eytzinger order, in the same way as FrozenStudentTreeSet.
+ * The keys themselves are in the array, so a search touches
+ * nothing but the array, and the first four levels of every
+ * search lie in the first cache line of it. Each step picks
+ * the next index with arithmetic on the comparison instead
+ * of a branch, so the number of steps is always the same.
+ *
+ * It is created by StudentIntTreeSet.freeze(), and it
+ * cannot be changed afterwards.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ */
+public class FrozenStudentIntTreeSet extends AbstractSet < Integer > {
+
+	// The keys in Eytzinger order, from index 1.
+	// Index 0 is not used.
+	private final int[] keys;
+
+	// The number of keys in the set
+	private final int size;
+
+	/**
+	 * The constructor. It lays out the keys of an
+	 * array in ascending order in Eytzinger order.
+	 * @param    sorted   the keys in ascending order
+	 */
+	FrozenStudentIntTreeSet( int[] sorted ) {
+		size = sorted.length;
+		keys = new int[ size + 1 ];
+		place( sorted, 0, 1 );
+	}
+
+	/**
+	 * This method recursively places the sorted keys
+	 * into the subtree at the given index, in order.
+	 * @param    sorted   the keys in ascending order
+	 * @param    next     the index of the next sorted key
+	 * @param    index    the index of the subtree root
+	 * @return   int      the index of the next sorted key
+	 *                    after the subtree has been filled
+	 */
+	private int place( int[] sorted, int next, int index ) {
+		if( index <= size ) {
+			next = place( sorted, next, 2 * index );
+			keys[index] = sorted[next++];
+			next = place( sorted, next, 2 * index + 1 );
+		}
+		return next;
+	}
+
+	/**
+	 * This method determines if a key exists in the set.
+	 * The walk goes all the way down, recording a step to
+	 * the right as a 1 bit of the index, and the smallest
+	 * key not below the one looked for is at the last node
+	 * the walk went left at.
+	 * @param    key       the key we are looking for
+	 * @return   boolean   true the set contains the key,
+	 *                     false otherwise
+	 */
+	public boolean contains( int key ) {
+		int index = 1;
+		while( index <= size ) {
+			index = 2 * index + ( keys[index] < key ? 1 : 0 );
+		}
+		index >>>= Integer.numberOfTrailingZeros( ~index ) + 1;
+		return index != 0 && keys[index] == key;
+	}
+
+	/**
+	 * This method determines if an object exists in the set.
+	 * @param    object    the object we are looking for
+	 * @return   boolean   true the set contains the object,
+	 *                     false otherwise
+	 */
+	public boolean contains( Object object ) {
+		return object instanceof Integer && contains( ( ( Integer ) object ).intValue() );
+	}
+
+	/**
+	 * This method returns the index of the key
+	 * after the one at the given index, in order.
+	 * @param    index   the index of a key, or 0
+	 *                   for the first key
+	 * @return   int     the index of the next key,
+	 *                   or 0 if there is none
+	 */
+	private int successor( int index ) {
+		if( 2 * index + 1 <= size ) {
+			index = 2 * index + 1;
+			while( 2 * index <= size ) {
+				index = 2 * index;
+			}
+			return index;
+		}
+		return index >>> ( Integer.numberOfTrailingZeros( ~index ) + 1 );
+	}
+
+	/**
+	 * Returns the size of the set.
+	 * @return   int   the number of keys in the set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method returns an iterator over the keys in
+	 * ascending order, which returns them without boxing.
+	 * @return   PrimitiveIterator.OfInt   the iterator
+	 */
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+
+			// The index of the next key, or 0
+			// once every key has been returned
+			int next = size > 0 ? successor( 0 ) : 0;
+
+			public boolean hasNext() {
+				return next != 0;
+			}
+
+			public int nextInt() {
+				if( next == 0 ) {
+					throw new NoSuchElementException();
+				}
+				int key = keys[next];
+				next = successor( next );
+				return key;
+			}
+		};
+	}
+
+	/**
+	 * The main method. It tests the different methods
+	 * of the FrozenStudentIntTreeSet class.
+	 * @param   args   command line arguments ( not used )
+	 */
+	public static void main( String [] args ) {
+		StudentIntTreeSet tree = new StudentIntTreeSet();
+		for( int key = 0; key < 20; key += 2 ) {
+			tree.add( key );
+		}
+		FrozenStudentIntTreeSet frozen = tree.freeze();
+
+		// Test the contains() method
+		System.out.println( frozen.contains( 8 ) );   // True
+		System.out.println( frozen.contains( 9 ) );   // False
+		System.out.println( frozen.contains( 19 ) );   // False
+
+		// Test the iterator through the toString() method
+		System.out.println( frozen );   // [0, 2, 4, 6, 8, 10, 12, 14, 16, 18]
+	}
+}
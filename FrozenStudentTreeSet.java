@@ -0,0 +1,304 @@
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read only set holding the elements of a StudentTreeSet
+ * in one array, in Eytzinger order: the root is at index 1
+ * and the children of the element at index k are at 2k and
+ * 2k + 1. A search walks down that array without following
+ * any node pointers, and the first levels of every search
+ * lie next to each other, so they share a few cache lines.
+ * The step to the next index is computed from the comparison
+ * rather than chosen by a branch, and the element found is
+ * recovered from the final index at the end.
+ *
+ * It is created by StudentTreeSet.freeze(), and it cannot
+ * be changed afterwards.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ *
+ * @param    <E>   this set only holds objects of
+ *                 type E where type E is any class that
+ *                 implements the Comparable interface.
+ */
+public class FrozenStudentTreeSet < E extends Comparable < E > >
+								extends AbstractSet < E > {
+
+	// The elements in Eytzinger order, from index 1.
+	// Index 0 is not used.
+	private final Object[] elements;
+
+	// The number of elements in the set
+	private final int size;
+
+	// The order of the elements, or null
+	// for their natural ordering
+	private final Comparator<? super E> comparator;
+
+	/**
+	 * The constructor. It lays out the elements of
+	 * an array in ascending order in Eytzinger order.
+	 * @param    sorted       the elements in ascending order
+	 * @param    comparator   the order of the elements, or
+	 *                        null for the natural ordering
+	 */
+	FrozenStudentTreeSet( Object[] sorted, Comparator<? super E> comparator ) {
+		this.comparator = comparator;
+		size = sorted.length;
+		elements = new Object[ size + 1 ];
+		place( sorted, 0, 1 );
+	}
+
+	/**
+	 * This method recursively places the sorted elements
+	 * into the subtree at the given index, in order.
+	 * @param    sorted   the elements in ascending order
+	 * @param    next     the index of the next sorted element
+	 * @param    index    the index of the subtree root
+	 * @return   int      the index of the next sorted element
+	 *                    after the subtree has been filled
+	 */
+	private int place( Object[] sorted, int next, int index ) {
+		if( index <= size ) {
+			next = place( sorted, next, 2 * index );
+			elements[index] = sorted[next++];
+			next = place( sorted, next, 2 * index + 1 );
+		}
+		return next;
+	}
+
+	/**
+	 * This method compares an object with an element
+	 * in the order of the set.
+	 * @param    object   the object to compare
+	 * @param    e        the element to compare it to
+	 * @return   int      a negative number, zero or a
+	 *                    positive number as the object is
+	 *                    less than, equal to or greater
+	 *                    than the element
+	 */
+	@SuppressWarnings("unchecked")
+	private int compare( Object object, E e ) {
+		if( comparator != null ) {
+			return comparator.compare( ( E ) object, e );
+		}
+		return ( ( Comparable<? super E> ) object ).compareTo( e );
+	}
+
+	/**
+	 * This method returns the index of the smallest element
+	 * greater than the given object, or equal to it if
+	 * inclusive is true. The walk always goes all the way
+	 * down; every step to the right is recorded as a 1 bit
+	 * of the index. The element found is the last node the
+	 * walk went left at, which is the index with its trailing
+	 * 1 bits and the 0 bit before them shifted out.
+	 * @param    object      the object to compare with
+	 * @param    inclusive   true if an equal element counts
+	 * @return   int         the index of the element found,
+	 *                       or 0 if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	private int ceilingIndex( Object object, boolean inclusive ) {
+		int limit = inclusive ? 0 : -1;
+		int index = 1;
+		while( index <= size ) {
+			int comparison = compare( object, ( E ) elements[index] );
+			index = 2 * index + ( comparison > limit ? 1 : 0 );
+		}
+		return index >>> ( Integer.numberOfTrailingZeros( ~index ) + 1 );
+	}
+
+	/**
+	 * This method returns the index of the element
+	 * after the one at the given index, in order.
+	 * @param    index   the index of an element
+	 * @return   int     the index of the next element,
+	 *                   or 0 if there is none
+	 */
+	private int successor( int index ) {
+		if( 2 * index + 1 <= size ) {
+			index = 2 * index + 1;
+			while( 2 * index <= size ) {
+				index = 2 * index;
+			}
+			return index;
+		}
+		return index >>> ( Integer.numberOfTrailingZeros( ~index ) + 1 );
+	}
+
+	/**
+	 * This method returns the index of the element
+	 * before the one at the given index, in order. An
+	 * index of 0 stands for the end of the set, so the
+	 * element before it is the largest one.
+	 * @param    index   the index of an element, or 0
+	 * @return   int     the index of the element before,
+	 *                   or 0 if there is none
+	 */
+	private int predecessor( int index ) {
+		if( index == 0 ) {
+			index = size > 0 ? 1 : 0;
+			while( index != 0 && 2 * index + 1 <= size ) {
+				index = 2 * index + 1;
+			}
+			return index;
+		}
+		if( 2 * index <= size ) {
+			index = 2 * index;
+			while( 2 * index + 1 <= size ) {
+				index = 2 * index + 1;
+			}
+			return index;
+		}
+		return index >>> ( Integer.numberOfTrailingZeros( index ) + 1 );
+	}
+
+	/**
+	 * This method returns the element at an index.
+	 * @param    index   the index, or 0
+	 * @return   E       the element, or null if the index is 0
+	 */
+	@SuppressWarnings("unchecked")
+	private E element( int index ) {
+		return index == 0 ? null : ( E ) elements[index];
+	}
+
+	/**
+	 * This method determines if an object exists in the set.
+	 * @param    object    the object we are looking for
+	 * @return   boolean   true the set contains the
+	 *                     given object, false otherwise
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean contains( Object object ) {
+		int index = ceilingIndex( object, true );
+		return index != 0 && compare( object, ( E ) elements[index] ) == 0;
+	}
+
+	/**
+	 * Returns the smallest element greater than
+	 * or equal to the given one.
+	 * @param    e   the element to compare with
+	 * @return   E   the element found, or null if there is none
+	 */
+	public E ceiling( E e ) {
+		return element( ceilingIndex( e, true ) );
+	}
+
+	/**
+	 * Returns the smallest element strictly
+	 * greater than the given one.
+	 * @param    e   the element to compare with
+	 * @return   E   the element found, or null if there is none
+	 */
+	public E higher( E e ) {
+		return element( ceilingIndex( e, false ) );
+	}
+
+	/**
+	 * Returns the largest element less than
+	 * or equal to the given one.
+	 * @param    e   the element to compare with
+	 * @return   E   the element found, or null if there is none
+	 */
+	public E floor( E e ) {
+		return element( predecessor( ceilingIndex( e, false ) ) );
+	}
+
+	/**
+	 * Returns the largest element strictly
+	 * less than the given one.
+	 * @param    e   the element to compare with
+	 * @return   E   the element found, or null if there is none
+	 */
+	public E lower( E e ) {
+		return element( predecessor( ceilingIndex( e, true ) ) );
+	}
+
+	/**
+	 * Returns the smallest element in the set.
+	 * @return   E   the smallest element
+	 * @throws   NoSuchElementException   if the set is empty
+	 */
+	public E first() {
+		if( size == 0 ) {
+			throw new NoSuchElementException();
+		}
+		return element( successor( 0 ) );
+	}
+
+	/**
+	 * Returns the largest element in the set.
+	 * @return   E   the largest element
+	 * @throws   NoSuchElementException   if the set is empty
+	 */
+	public E last() {
+		if( size == 0 ) {
+			throw new NoSuchElementException();
+		}
+		return element( predecessor( 0 ) );
+	}
+
+	/**
+	 * Returns the size of the set.
+	 * @return   int   the number of elements in the set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method returns an iterator over the
+	 * elements in ascending order.
+	 * @return   Iterator<E>   the iterator
+	 */
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+
+			// The index of the next element, or 0
+			// once every element has been returned
+			int next = size > 0 ? successor( 0 ) : 0;
+
+			public boolean hasNext() {
+				return next != 0;
+			}
+
+			public E next() {
+				if( next == 0 ) {
+					throw new NoSuchElementException();
+				}
+				E e = element( next );
+				next = successor( next );
+				return e;
+			}
+		};
+	}
+
+	/**
+	 * The main method. It tests the different methods
+	 * of the FrozenStudentTreeSet class.
+	 * @param   args   command line arguments ( not used )
+	 */
+	public static void main( String [] args ) {
+		StudentTreeSet<Integer> tree = new StudentTreeSet<Integer>();
+		for( int integer = 0; integer < 20; integer += 2 ) {
+			tree.add( integer );
+		}
+		FrozenStudentTreeSet<Integer> frozen = tree.freeze();
+
+		// Test the contains() method
+		System.out.println( frozen.contains( 8 ) );   // True
+		System.out.println( frozen.contains( 9 ) );   // False
+
+		// Test the navigation methods
+		System.out.println( frozen.ceiling( 9 ) + " " + frozen.higher( 10 ) );   // 10 12
+		System.out.println( frozen.floor( 9 ) + " " + frozen.lower( 8 ) );   // 8 6
+		System.out.println( frozen.first() + " " + frozen.last() );   // 0 18
+
+		// Test the iterator through the toString() method
+		System.out.println( frozen );   // [0, 2, 4, 6, 8, 10, 12, 14, 16, 18]
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * This class is used as a node in a binary search
+ * tree that orders its elements by a long sort key.
+ * The node keeps the key of its element, so a search
+ * compares two longs rather than the elements themselves.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ *
+ * @param    <T>   this node only accepts objects of
+ *                 type T where type T is any class that
+ *                 implements the Comparable interface.
+ */
+public class KeyedNode < T extends Comparable < T > > extends Node < T > {
+
+	// The sort key of the data stored in this node
+	long key;
+
+	/**
+	 * The constructor. It initializes the data
+	 * and its sort key.
+	 * @param   data   the data to be
+	 *                 stored in this node
+	 * @param   key    the sort key of the data
+	 */
+	public KeyedNode( T data, long key ) {
+		super( data );
+		this.key = key;
+	}
+
+	/**
+	 * The main method. It tests the different
+	 * methods of the KeyedNode class.
+	 * @param   args   command line arguments ( not used )
+	 */
+	public static void main( String [] args ) {
+
+		// Create a node whose key is the length of its data
+		KeyedNode<String> node = new KeyedNode<String>( "student", 7 );
+		System.out.println( node + " " + node.key );   // student 7
+
+		// A keyed node is linked like any other node
+		node.left = new Node<String>( "tree" );
+		System.out.println( node.left );   // tree
+	}
+}
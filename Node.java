@@ -1,6 +1,9 @@
 /**
  * This class is used as a node in a
- * binary search tree.
+ * binary search tree. It has no link to its
+ * parent; the trees record the path from the root
+ * instead. With compressed references a node
+ * takes 32 bytes.
  * @author   Kyle McGlynn
  * @author   Ajinkya Kolhe
  *
@@ -10,15 +13,23 @@
  */
 public class Node < T extends Comparable < T > > {
 	
-	// The parent and children of
-	// this node, initialized to null
-	Node<T> parent = null;
+	// The children of this node,
+	// initialized to null
 	Node<T> left = null;
 	Node<T> right = null;
 	
 	// The data stored in this node
 	T data;
 	
+	// The number of nodes in the subtree
+	// rooted at this node, including itself
+	int size = 1;
+
+	// The epoch of the tree this node was created in.
+	// A node from an older epoch may be shared with a
+	// snapshot, so it is copied before it is changed.
+	int epoch = 0;
+
 	/**
 	 * The constructor. It initializes the data.
 	 * @param   data   the data to be 
@@ -28,6 +39,18 @@ public class Node < T extends Comparable < T > > {
 		this.data = data;
 	}
 	
+	/**
+	 * This method creates an empty array of nodes. 
+	 * Arrays of a generic type cannot be created directly,
+	 * so this is the one place that casts a raw one.
+	 * @param    length    the length of the array
+	 * @return   Node<T>[] the array
+	 */
+	@SuppressWarnings({"unchecked","rawtypes"})
+	static < T extends Comparable < T > > Node<T>[] array( int length ) {
+		return ( Node<T>[] ) new Node[ length ];
+	}
+	
 	/**
 	 * This method returns the hash code
 	 * of the data stored in this node.
@@ -82,16 +105,13 @@ public class Node < T extends Comparable < T > > {
 		
 		Node<Integer> node4 = new Node<Integer>( new Integer( 20 ) );
 		Node<Integer> node5 = new Node<Integer>( new Integer( 30 ) );
-		Node<Integer> node6 = new Node<Integer>( new Integer( 0 ) );
 		
-		// Test left, right, and parent connections
+		// Test left and right connections
 		node.left = node4;
 		node.right = node5;
-		node.parent = node6;
 		
 		System.out.println( node.left );
 		System.out.println( node.right );
-		System.out.println( node.parent );
 		
 	}
 }
\ No newline at end of file
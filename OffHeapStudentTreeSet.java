@@ -0,0 +1,758 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A self balancing binary search tree with the properties
+ * of a set, whose nodes are kept outside the Java heap. Every
+ * node is a fixed size record of the bytes of its element,
+ * written by an ElementCodec, followed by the indexes of its
+ * left and right child. The garbage collector never sees the
+ * nodes, however many there are.
+ *
+ * The records are kept in chunks of up to 2^20 nodes, so the
+ * set is not limited by the 2GB size of one buffer. The chunks
+ * are either direct buffers, or regions of a memory mapped file,
+ * in which case the set can be opened again from the file after
+ * a restart without reading or rebuilding anything.
+ *
+ * Like StudentIntTreeSet, it rebuilds only the subtree of the
+ * lowest unbalanced ancestor when an element is placed too deep,
+ * so add() and contains() take O( log n ) time.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ *
+ * @param    <E>   this tree only accepts objects of
+ *                 type E where type E is any class that
+ *                 implements the Comparable interface.
+ */
+public class OffHeapStudentTreeSet < E extends Comparable < E > >
+								extends AbstractSet < E > implements Closeable {
+
+	// The index used for a missing child
+	static final int NIL = -1;
+
+	// A chunk holds up to 2^CHUNK_SHIFT nodes
+	private static final int CHUNK_SHIFT = 20;
+	private static final int CHUNK_NODES = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_NODES - 1;
+
+	// The number of nodes a new chunk has room for.
+	// The last chunk doubles until it is full size.
+	private static final int INITIAL_NODES = 1024;
+
+	// The bytes at the start of a file that hold the header
+	private static final int HEADER_BYTES = 64;
+
+	// The first four bytes of a file holding a set
+	private static final int MAGIC = 0x53545331;
+
+	// Turns the elements into bytes and back
+	private final ElementCodec<E> codec;
+
+	// The width of an element and of a whole node in bytes
+	private final int width;
+	private final int recordSize;
+
+	// The chunks of nodes. Node n is in chunk n >>> CHUNK_SHIFT.
+	private ByteBuffer[] chunks = new ByteBuffer[0];
+
+	// The file the chunks are mapped from, or null if
+	// they are direct buffers
+	private final FileChannel channel;
+
+	// The start of the file, holding the magic number, the
+	// width, the size and the root, or null without a file
+	private final ByteBuffer header;
+
+	// The index of the top of the tree
+	private int root = NIL;
+
+	// The number of elements in the tree, which is
+	// also the index of the next free node
+	private int size = 0;
+
+	// The number of modifications made to the structure
+	// of the tree. Iterators compare it with the count at
+	// their creation to detect concurrent modifications.
+	int modCount = 0;
+
+	// Height of a perfectly balanced tree holding
+	// the elements of this tree, at least 3
+	private int maxHeight = 3;
+
+	// Constant factor used to determine how far
+	// past maxHeight an element may be placed
+	// before the tree is rebalanced
+	private double rangeFactor = 1.75;
+
+	// The nodes from the root down to the node being added
+	private int[] path = new int[16];
+
+	// The next node of the flattened list
+	// that the rebuild method links into the tree
+	private int rebuildList;
+
+	/**
+	 * The constructor. It creates an empty tree whose
+	 * nodes are kept in direct buffers.
+	 * @param    codec   turns the elements into bytes
+	 * @throws   IllegalArgumentException   if the codec is not
+	 *                                      from 1 to 1024 bytes wide
+	 */
+	public OffHeapStudentTreeSet( ElementCodec<E> codec ) {
+		this( codec, null, null );
+	}
+
+	/**
+	 * The constructor. It creates a tree whose nodes are
+	 * kept in direct buffers or in a mapped file.
+	 * @param    codec     turns the elements into bytes
+	 * @param    channel   the file, or null for direct buffers
+	 * @param    header    the mapped header of the file, or null
+	 */
+	private OffHeapStudentTreeSet( ElementCodec<E> codec, FileChannel channel, ByteBuffer header ) {
+		this.codec = codec;
+		this.width = StudentTreeSet.checkedWidth( codec );
+		this.recordSize = width + 8;
+		this.channel = channel;
+		this.header = header;
+	}
+
+	/**
+	 * This method opens a tree kept in a memory mapped file.
+	 * If the file is empty, the tree is empty, otherwise it
+	 * holds the elements the file was left with. The nodes
+	 * are mapped as they are, so opening takes no time that
+	 * depends on the number of elements.
+	 * @param    file    the file holding the tree
+	 * @param    codec   turns the elements into bytes
+	 * @return   OffHeapStudentTreeSet<E>   the tree
+	 * @throws   IOException   if the file cannot be mapped, or
+	 *                         holds something other than a tree
+	 *                         of elements of this width
+	 * @throws   IllegalArgumentException   if the codec is not
+	 *                                      from 1 to 1024 bytes wide
+	 */
+	public static < E extends Comparable < E > > OffHeapStudentTreeSet<E> open(
+			Path file, ElementCodec<E> codec ) throws IOException {
+		FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE );
+
+		// Close the file again if anything below fails,
+		// since no tree is returned to close it
+		try {
+			long length = channel.size();
+
+			// Mapping the header would lengthen a short file,
+			// so check that it has one before mapping it
+			if( length > 0 && length < HEADER_BYTES ) {
+				throw new IOException( "Too short to hold a tree: " + file );
+			}
+			ByteBuffer header = channel.map( FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES )
+					.order( ByteOrder.LITTLE_ENDIAN );
+			OffHeapStudentTreeSet<E> tree = new OffHeapStudentTreeSet<E>( codec, channel, header );
+			if( length == 0 ) {
+				header.putInt( 0, MAGIC );
+				header.putInt( 4, tree.width );
+				tree.writeHeader();
+				return tree;
+			}
+			if( header.getInt( 0 ) != MAGIC || header.getInt( 4 ) != tree.width ) {
+				throw new IOException( "Not a tree of " + tree.width + " byte elements: " + file );
+			}
+			tree.size = header.getInt( 8 );
+			tree.root = header.getInt( 12 );
+
+			// The nodes must all be in the file, or mapping
+			// them would lengthen it with empty ones
+			if( tree.size < 0 || HEADER_BYTES + ( long ) tree.size * tree.recordSize > length
+					|| ( tree.size == 0 ? tree.root != NIL : tree.root < 0 || tree.root >= tree.size ) ) {
+				throw new IOException( "Header does not match the length of " + file );
+			}
+			while( tree.size > ( 1L << tree.maxHeight ) - 1 ) {
+				tree.maxHeight++;
+			}
+
+			// Map every chunk that holds nodes
+			int count = tree.size;
+			for( int chunk = 0; count > 0; chunk++ ) {
+				int nodes = Math.min( count, CHUNK_NODES );
+				tree.growChunk( chunk, count > CHUNK_NODES ? CHUNK_NODES :
+					Math.max( INITIAL_NODES, Integer.highestOneBit( nodes - 1 ) << 1 ) );
+				count -= nodes;
+			}
+			return tree;
+		}
+		catch( IOException | RuntimeException e ) {
+			try {
+				channel.close();
+			}
+			catch( IOException closing ) {
+				e.addSuppressed( closing );
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * This method writes the size and the root of the
+	 * tree into the header of the file, if there is one.
+	 */
+	private void writeHeader() {
+		if( header != null ) {
+			header.putInt( 8, size );
+			header.putInt( 12, root );
+		}
+	}
+
+	/**
+	 * This method gives a chunk room for the given number
+	 * of nodes. A direct buffer is copied into a larger one,
+	 * and a larger region of the file is mapped in place of
+	 * a mapped one, which keeps its contents.
+	 * @param    chunk   the index of the chunk
+	 * @param    nodes   the number of nodes it must hold
+	 */
+	private void growChunk( int chunk, int nodes ) {
+		if( chunk == chunks.length ) {
+			chunks = Arrays.copyOf( chunks, chunk + 1 );
+		}
+		int bytes = nodes * recordSize;
+		ByteBuffer buffer;
+		if( channel == null ) {
+			buffer = ByteBuffer.allocateDirect( bytes );
+			if( chunks[chunk] != null ) {
+				buffer.put( chunks[chunk].duplicate().clear() );
+			}
+		}
+		else{
+			long start = HEADER_BYTES + ( long ) chunk * CHUNK_NODES * recordSize;
+			try {
+				buffer = channel.map( FileChannel.MapMode.READ_WRITE, start, bytes );
+			}
+			catch( IOException e ) {
+				throw new UncheckedIOException( e );
+			}
+		}
+		chunks[chunk] = buffer.order( ByteOrder.LITTLE_ENDIAN );
+	}
+
+	/**
+	 * Returns the chunk holding a node.
+	 * @param    node         the index of the node
+	 * @return   ByteBuffer   its chunk
+	 */
+	private ByteBuffer chunk( int node ) {
+		return chunks[ node >>> CHUNK_SHIFT ];
+	}
+
+	/**
+	 * Returns the offset of a node within its chunk.
+	 * @param    node   the index of the node
+	 * @return   int    the index of its first byte
+	 */
+	private int offset( int node ) {
+		return ( node & CHUNK_MASK ) * recordSize;
+	}
+
+	/**
+	 * Returns the left child of a node.
+	 * @param    node   the index of the node
+	 * @return   int    the index of its left child, or NIL
+	 */
+	private int left( int node ) {
+		return chunk( node ).getInt( offset( node ) + width );
+	}
+
+	/**
+	 * Returns the right child of a node.
+	 * @param    node   the index of the node
+	 * @return   int    the index of its right child, or NIL
+	 */
+	private int right( int node ) {
+		return chunk( node ).getInt( offset( node ) + width + 4 );
+	}
+
+	/**
+	 * Sets the left child of a node.
+	 * @param    node    the index of the node
+	 * @param    child   the index of the child, or NIL
+	 */
+	private void setLeft( int node, int child ) {
+		chunk( node ).putInt( offset( node ) + width, child );
+	}
+
+	/**
+	 * Sets the right child of a node.
+	 * @param    node    the index of the node
+	 * @param    child   the index of the child, or NIL
+	 */
+	private void setRight( int node, int child ) {
+		chunk( node ).putInt( offset( node ) + width + 4, child );
+	}
+
+	/**
+	 * Returns the element of a node.
+	 * @param    node   the index of the node
+	 * @return   E      the element read from its bytes
+	 */
+	private E element( int node ) {
+		return codec.read( chunk( node ), offset( node ) );
+	}
+
+	/**
+	 * This method compares an element with the
+	 * element of a node, without reading the latter
+	 * if the codec can compare the bytes.
+	 * @param    e      the element to compare
+	 * @param    node   the index of the node
+	 * @return   int    the result of the comparison
+	 */
+	private int compare( E e, int node ) {
+		return codec.compare( e, chunk( node ), offset( node ) );
+	}
+
+	/**
+	 * This method creates a node for an element as the
+	 * next free node, growing the last chunk or starting
+	 * a new one if there is no room.
+	 * @param    e     the element of the node
+	 * @return   int   the index of the new node
+	 */
+	private int newNode( E e ) {
+		int node = size;
+		int chunk = node >>> CHUNK_SHIFT;
+		if( chunk == chunks.length || chunks[chunk] == null ) {
+			growChunk( chunk, INITIAL_NODES );
+		}
+		else if( offset( node ) == chunks[chunk].capacity() ) {
+			growChunk( chunk, chunks[chunk].capacity() / recordSize * 2 );
+		}
+		codec.write( chunk( node ), offset( node ), e );
+		setLeft( node, NIL );
+		setRight( node, NIL );
+		return node;
+	}
+
+	/**
+	 * This method records a node at the given depth of
+	 * the path, doubling the path if it is full.
+	 * @param    depth   the depth of the node
+	 * @param    node    the index of the node
+	 */
+	private void record( int depth, int node ) {
+		if( depth == path.length ) {
+			path = Arrays.copyOf( path, depth * 2 );
+		}
+		path[depth] = node;
+	}
+
+	/**
+	 * This method adds an element to the tree. If the
+	 * element already exists in this tree, then this
+	 * method returns false.
+	 * @param    e         the element to add
+	 * @return   boolean   true if the element could be
+	 *                     added, false otherwise
+	 * @throws   NullPointerException    if the element is null
+	 * @throws   IllegalStateException   if the tree is full
+	 */
+	public boolean add( E e ) {
+		if( e == null ) {
+			throw new NullPointerException( "Cannot add a null value." );
+		}
+		if( size == Integer.MAX_VALUE ) {
+			throw new IllegalStateException( "The tree is full." );
+		}
+
+		// The node that will hold the element
+		int node;
+
+		// The depth at which the node is placed
+		int depth = 0;
+
+		// If the root is empty
+		if( root == NIL ) {
+			node = newNode( e );
+			root = node;
+		}
+
+		// If the root is not empty, then
+		// bubble down
+		else{
+			int ancestor = root;
+			int comparison;
+			while( true ) {
+
+				// If the element is already in the tree,
+				// it could not be added, so return false
+				comparison = compare( e, ancestor );
+				if( comparison == 0 ) {
+					return false;
+				}
+				record( depth++, ancestor );
+
+				// Move to the child on the element's side,
+				// stopping if that position is empty
+				int child = comparison < 0 ? left( ancestor ) : right( ancestor );
+				if( child == NIL ) {
+					break;
+				}
+				ancestor = child;
+			}
+
+			// Put a new node in the empty position
+			node = newNode( e );
+			if( comparison < 0 ) {
+				setLeft( ancestor, node );
+			}
+			else{
+				setRight( ancestor, node );
+			}
+		}
+
+		// Record that a modification has
+		// been made to the structure
+		modCount++;
+		size++;
+
+		// If the number of elements exceeds the
+		// amount that would be present in a full tree
+		// of height equal to maxHeight, than increase
+		// maxHeight by one.
+		if( size > ( 1L << maxHeight ) - 1 ) {
+			maxHeight++;
+		}
+
+		// If the node was placed deeper than the maximum
+		// height times the range factor, rebuild the
+		// unbalanced subtree.
+		if( depth >= maxHeight * rangeFactor ) {
+			rebalance( node, depth );
+		}
+		writeHeader();
+		return true;
+	}
+
+	/**
+	 * This method determines if an object exists in the tree.
+	 * @param    object    the object we are looking for
+	 * @return   boolean   true the tree contains the
+	 *                     given object, false otherwise
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean contains( Object object ) {
+		E e = ( E ) object;
+		int node = root;
+		while( node != NIL ) {
+			int comparison = compare( e, node );
+			if( comparison == 0 ) {
+				return true;
+			}
+			node = comparison < 0 ? left( node ) : right( node );
+		}
+		return false;
+	}
+
+	/**
+	 * This method finds the scapegoat of a node that was
+	 * placed too deep and rebuilds the subtree rooted at it,
+	 * in the same way as StudentIntTreeSet does.
+	 * @param    node    the node that was placed too deep
+	 * @param    depth   the depth of the node, whose
+	 *                   ancestors are at the front of path
+	 */
+	private void rebalance( int node, int depth ) {
+
+		// The largest share of an ancestor's elements
+		// that one of its children may hold
+		double alpha = Math.pow( 0.5, 1.0 / rangeFactor );
+
+		// Walk back up the insert path, counting
+		// the elements below each ancestor
+		int child = node;
+		int childSize = 1;
+		for( int index = depth - 1; index >= 0; index-- ) {
+			int ancestor = path[index];
+			int sibling = left( ancestor ) == child ? right( ancestor ) : left( ancestor );
+			int ancestorSize = childSize + 1 + count( sibling );
+
+			// If the child is too heavy, the ancestor
+			// is the scapegoat
+			if( childSize > alpha * ancestorSize ) {
+				rebuild( ancestor, ancestorSize, index > 0 ? path[index - 1] : NIL );
+				return;
+			}
+			child = ancestor;
+			childSize = ancestorSize;
+		}
+		rebuild( root, size, NIL );
+	}
+
+	/**
+	 * This method recursively counts the nodes in a subtree.
+	 * @param    node   the root of the subtree
+	 * @return   int    the number of nodes in the subtree
+	 */
+	private int count( int node ) {
+		if( node == NIL ) {
+			return 0;
+		}
+		return count( left( node ) ) + 1 + count( right( node ) );
+	}
+
+	/**
+	 * This method rebuilds a subtree into a perfectly
+	 * balanced one, relinking its nodes in place as
+	 * StudentTreeSet does, so nothing is allocated.
+	 * @param    node     the root of the subtree to rebuild
+	 * @param    count    the number of nodes in the subtree
+	 * @param    parent   the node the subtree hangs from,
+	 *                    or NIL if it is the whole tree
+	 */
+	private void rebuild( int node, int count, int parent ) {
+		rebuildList = flatten( node );
+		int balanced = build( count );
+		if( parent == NIL ) {
+			root = balanced;
+		}
+		else if( left( parent ) == node ) {
+			setLeft( parent, balanced );
+		}
+		else{
+			setRight( parent, balanced );
+		}
+	}
+
+	/**
+	 * This method turns a subtree into a list of its
+	 * nodes in order, linked through their right child,
+	 * by rotating right children up.
+	 * @param    node   the root of the subtree to flatten
+	 * @return   int    the first node of the list
+	 */
+	private int flatten( int node ) {
+		int head = NIL;
+		while( node != NIL ) {
+			int child = right( node );
+			if( child != NIL ) {
+				setRight( node, left( child ) );
+				setLeft( child, node );
+				node = child;
+			}
+			else{
+				int next = left( node );
+				setLeft( node, NIL );
+				setRight( node, head );
+				head = node;
+				node = next;
+			}
+		}
+		return head;
+	}
+
+	/**
+	 * This method recursively links the next nodes of
+	 * the flattened list into a balanced tree.
+	 * @param    count   how many nodes of the list
+	 *                   to link into this tree
+	 * @return   int     the root of the balanced tree
+	 */
+	private int build( int count ) {
+		if( count == 0 ) {
+			return NIL;
+		}
+		int middle = count / 2;
+		int left = build( middle );
+		int node = rebuildList;
+		rebuildList = right( node );
+		int right = build( count - middle - 1 );
+		setLeft( node, left );
+		setRight( node, right );
+		return node;
+	}
+
+	/**
+	 * This method clears the tree of all elements. The
+	 * chunks are kept, so filling the tree again does
+	 * not allocate anything.
+	 */
+	public void clear() {
+		modCount++;
+		root = NIL;
+		size = 0;
+		maxHeight = 3;
+		writeHeader();
+	}
+
+	/**
+	 * Returns the size of the tree.
+	 * @return   size   the number of elements
+	 *                  in the tree.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method returns true if the
+	 * tree is empty and false otherwise.
+	 * @return   boolean   true if the tree is empty,
+	 *                     false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * This method writes the mapped chunks back to the
+	 * file. It does nothing for direct buffers.
+	 */
+	public void force() {
+		if( channel != null ) {
+			( ( MappedByteBuffer ) header ).force();
+			for( ByteBuffer chunk : chunks ) {
+				( ( MappedByteBuffer ) chunk ).force();
+			}
+		}
+	}
+
+	/**
+	 * This method writes the mapped chunks back to the
+	 * file and closes it. The tree must not be used after.
+	 * @throws   IOException   if the file cannot be closed
+	 */
+	public void close() throws IOException {
+		if( channel != null ) {
+			force();
+			channel.close();
+		}
+	}
+
+	/**
+	 * This method returns an iterator over the elements
+	 * in ascending order. It keeps a stack of the nodes
+	 * between the root and the next element, as
+	 * StudentIterator does.
+	 * @return   Iterator<E>   the iterator
+	 */
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+
+			// The nodes whose elements have not been
+			// returned yet although their left subtree has
+			int[] stack = new int[ maxHeight * 2 + 2 ];
+
+			// A pointer to the top of the stack
+			int pointer = pushLeft( root, -1 );
+
+			// The modification count of the tree
+			// when this iterator was created
+			int expectedModCount = modCount;
+
+			/**
+			 * This method pushes a node and its chain of
+			 * left children onto the stack.
+			 * @param    node      the node to start from
+			 * @param    pointer   the top of the stack
+			 * @return   int       the new top of the stack
+			 */
+			int pushLeft( int node, int pointer ) {
+				while( node != NIL ) {
+					if( ++pointer == stack.length ) {
+						stack = Arrays.copyOf( stack, stack.length * 2 );
+					}
+					stack[pointer] = node;
+					node = left( node );
+				}
+				return pointer;
+			}
+
+			public boolean hasNext() {
+				return pointer >= 0;
+			}
+
+			public E next() {
+
+				// If a modification has been made to the
+				// tree structure, fail fast
+				if( expectedModCount != modCount ) {
+					throw new ConcurrentModificationException();
+				}
+				if( pointer < 0 ) {
+					throw new NoSuchElementException();
+				}
+				int node = stack[pointer];
+				pointer = pushLeft( right( node ), pointer - 1 );
+				return element( node );
+			}
+		};
+	}
+
+	/**
+	 * The main method. It tests the different methods
+	 * of the OffHeapStudentTreeSet class.
+	 * @param   args   command line arguments ( not used )
+	 * @throws  IOException   if the test file cannot be used
+	 */
+	public static void main( String [] args ) throws IOException {
+
+		// Test a tree of direct buffers with
+		// more nodes than fit in one chunk
+		OffHeapStudentTreeSet<Integer> tree = new OffHeapStudentTreeSet<Integer>( ElementCodec.INTEGER );
+		for( int integer = 0; integer < 2000000; integer++ ) {
+			tree.add( integer );
+		}
+		System.out.println( "Number of elements: " + tree.size() );   // 2000000
+		System.out.println( tree.add( 5000 ) );   // False
+		System.out.println( tree.contains( 1999999 ) + " " + tree.contains( 2000000 ) );   // True False
+		long sum = 0;
+		for( Integer integer : tree ) {
+			sum += integer;
+		}
+		System.out.println( sum );   // 1999999000000
+
+		// Test a mapped tree that is opened again
+		Path file = Files.createTempFile( "students", ".tree" );
+		OffHeapStudentTreeSet<Long> mapped = OffHeapStudentTreeSet.open( file, ElementCodec.LONG );
+		for( long value = 100; value > 0; value-- ) {
+			mapped.add( value * 3 );
+		}
+		mapped.close();
+		mapped = OffHeapStudentTreeSet.open( file, ElementCodec.LONG );
+		System.out.println( mapped.size() + " " + mapped.contains( 300L ) +
+				" " + mapped.contains( 301L ) );   // 100 true false
+		System.out.println( mapped.iterator().next() );   // 3
+		mapped.close();
+
+		// Test that a file too short for its header, or for
+		// the nodes its header claims, is rejected as it is
+		for( long length : new long[] { HEADER_BYTES + 100, 10 } ) {
+			try( FileChannel truncate = FileChannel.open( file, StandardOpenOption.WRITE ) ) {
+				truncate.truncate( length );
+			}
+			try {
+				OffHeapStudentTreeSet.open( file, ElementCodec.LONG );
+				System.out.println( "Short file accepted" );
+			}
+			catch( IOException e ) {
+				System.out.println( Files.size( file ) + " " + e.getMessage().startsWith(
+						length == 10 ? "Too short" : "Header" ) );   // 164 true, then 10 true
+			}
+		}
+		Files.delete( file );
+	}
+}
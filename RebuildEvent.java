@@ -0,0 +1,32 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for one rebuild of a
+ * StudentTreeSet, so the pauses rebuilds cause can be lined
+ * up with the latency of the program in a recording. It is
+ * only emitted by trees whose statistics are enabled.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ */
+@Name( "StudentTreeSet.Rebuild" )
+@Label( "Tree Rebuild" )
+@Category( "StudentTreeSet" )
+@Description( "A subtree or the whole tree was rebuilt into a balanced one" )
+class RebuildEvent extends Event {
+
+	// The number of nodes relinked
+	@Label( "Nodes" )
+	int nodes;
+
+	// True if the whole tree was rebuilt
+	@Label( "Whole Tree" )
+	boolean whole;
+
+	// The number of elements in the tree
+	@Label( "Tree Size" )
+	int size;
+}
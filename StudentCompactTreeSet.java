@@ -0,0 +1,218 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * A self balancing binary search tree with the properties
+ * of a set that keeps its nodes in a pool of parallel arrays
+ * rather than in Node objects. Every node is an index into an
+ * array of elements and two int arrays of left and right child
+ * indexes, and no node knows its parent. That takes 12 bytes
+ * per element besides the element itself, where a Node takes
+ * 32 and an entry of java.util.TreeSet 40.
+ *
+ * Like StudentIntTreeSet, it rebuilds only the subtree of the
+ * lowest unbalanced ancestor when an element is placed too
+ * deep, so add() and contains() take O( log n ) time. The path
+ * from the root is recorded while adding, so the ancestors are
+ * found without parent links. The balancing is done by
+ * StudentIndexTreeSet, which this class shares with
+ * StudentIntTreeSet and StudentLongTreeSet.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ *
+ * @param    <E>   this tree only accepts objects of
+ *                 type E where type E is any class that
+ *                 implements the Comparable interface.
+ */
+public class StudentCompactTreeSet < E extends Comparable < E > >
+								extends StudentIndexTreeSet < E > {
+
+	// The element stored in each node
+	Object[] data;
+
+	// The order of the elements, or null for their
+	// natural ordering
+	private Comparator<? super E> comparator;
+
+	/**
+	 * The constructor. It creates an empty tree.
+	 */
+	public StudentCompactTreeSet() {
+		this( 16, null );
+	}
+
+	/**
+	 * The constructor. It creates an empty tree that orders
+	 * its elements with a comparator, with room for the given
+	 * number of elements before it grows.
+	 * @param    capacity     the initial number of nodes
+	 * @param    comparator   the order of the elements, or
+	 *                        null for the natural ordering
+	 */
+	public StudentCompactTreeSet( int capacity, Comparator<? super E> comparator ) {
+		super( capacity );
+		data = new Object[ left.length ];
+		this.comparator = comparator;
+	}
+
+	void resize( int capacity ) {
+		data = Arrays.copyOf( data, capacity );
+	}
+
+	/**
+	 * This method compares an object with an element, by
+	 * the comparator if there is one and otherwise by their
+	 * natural ordering.
+	 * @param    object   the object to compare
+	 * @param    e        the element to compare it with
+	 * @return   int      a negative number, zero or a positive
+	 *                    number as object is less than, equal
+	 *                    to or greater than e
+	 */
+	@SuppressWarnings("unchecked")
+	private int compare( Object object, Object e ) {
+		if( comparator != null ) {
+			return comparator.compare( ( E ) object, ( E ) e );
+		}
+		return ( ( Comparable<? super E> ) object ).compareTo( ( E ) e );
+	}
+
+	/**
+	 * This method adds an element to the tree. If the
+	 * element already exists in this tree, then this
+	 * method returns false.
+	 * @param    e         the element to add
+	 * @return   boolean   true if the element could be
+	 *                     added, false otherwise
+	 * @throws   NullPointerException   if the element is null
+	 */
+	public boolean add( E e ) {
+		if( e == null ) {
+			throw new NullPointerException( "Cannot add a null value." );
+		}
+
+		// The depth at which the node is placed
+		int depth = 0;
+
+		// Bubble down from the root, recording the
+		// path, until an empty position is reached
+		int comparison = 0;
+		int ancestor = root;
+		while( ancestor != NIL ) {
+
+			// If the element is already in the tree,
+			// it could not be added, so return false
+			comparison = compare( e, data[ancestor] );
+			if( comparison == 0 ) {
+				return false;
+			}
+			record( depth++, ancestor );
+
+			// Move to the child on the element's side
+			ancestor = comparison < 0 ? left[ancestor] : right[ancestor];
+		}
+
+		// Put a new node in the empty position
+		int node = newNode();
+		data[node] = e;
+		link( node, depth, comparison < 0 );
+		return true;
+	}
+
+	/**
+	 * This method determines if an object exists in the tree.
+	 * @param    object    the object we are looking for
+	 * @return   boolean   true the tree contains the object,
+	 *                     false otherwise
+	 */
+	public boolean contains( Object object ) {
+		int node = root;
+		while( node != NIL ) {
+			int comparison = compare( object, data[node] );
+			if( comparison == 0 ) {
+				return true;
+			}
+			node = comparison < 0 ? left[node] : right[node];
+		}
+		return false;
+	}
+
+	/**
+	 * This method clears the tree of all elements. The
+	 * arrays are kept, so filling the tree again does
+	 * not allocate anything, but the elements are let go.
+	 */
+	public void clear() {
+		Arrays.fill( data, 0, size, null );
+		super.clear();
+	}
+
+	/**
+	 * This method returns an iterator over the elements
+	 * in ascending order. StudentIndexIterator keeps a
+	 * stack of the nodes between the root and the next
+	 * element, as StudentIterator does.
+	 * @return   Iterator<E>   the iterator
+	 */
+	public Iterator<E> iterator() {
+		class CompactIterator extends StudentIndexIterator implements Iterator<E> {
+
+			CompactIterator() {
+				super( StudentCompactTreeSet.this );
+			}
+
+			@SuppressWarnings("unchecked")
+			public E next() {
+				return ( E ) data[ nextNode() ];
+			}
+		}
+		return new CompactIterator();
+	}
+
+	/**
+	 * The main method. It tests the different methods
+	 * of the StudentCompactTreeSet class.
+	 * @param   args   command line arguments ( not used )
+	 */
+	public static void main( String [] args ) {
+
+		// Create a StudentCompactTreeSet object
+		StudentCompactTreeSet<Integer> tree = new StudentCompactTreeSet<Integer>();
+
+		// Test the add() method for 10,000 elements
+		for( int integer = 0; integer < 10000; integer++ ) {
+			tree.add( integer );
+		}
+		System.out.println( "Tree is empty: " + tree.isEmpty() +
+				" Number of elements: " + tree.size() );
+
+		// Test the boolean return values of add()
+		System.out.println( tree.add( 5000 ) );   // False
+		System.out.println( tree.add( 10001 ) );   // True
+
+		// Test the contains() method
+		System.out.println( tree.contains( 10000 ) );   // False
+		System.out.println( tree.contains( 20 ) );   // True
+
+		// Test the iterator
+		tree.clear();
+		for( int integer = 10; integer > 0; integer-- ) {
+			tree.add( integer );
+		}
+		Iterator<Integer> iter = tree.iterator();
+		System.out.println( iter.hasNext() );
+		System.out.println( iter.next() );   // 1
+
+		// Test the toString() method
+		System.out.println( tree );
+
+		// Test a comparator
+		StudentCompactTreeSet<String> reverse =
+				new StudentCompactTreeSet<String>( 4, Comparator.reverseOrder() );
+		reverse.add( "a" );
+		reverse.add( "c" );
+		reverse.add( "b" );
+		System.out.println( reverse );   // [c, b, a]
+	}
+}
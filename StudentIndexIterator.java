@@ -0,0 +1,97 @@
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * The part of the iterators over a StudentIndexTreeSet that
+ * does not depend on the type of the elements. Since no node
+ * knows its parent, it keeps a stack of the nodes between the
+ * root and the next node, as StudentIterator does, and a
+ * subclass returns the element of each node it walks to.
+ * @author   Ajinkya Kolhe
+ * @author   Kyle McGlynn
+ */
+abstract class StudentIndexIterator {
+
+	// A reference to the tree being iterated over
+	private final StudentIndexTreeSet<?> tree;
+
+	// The nodes whose elements have not been
+	// returned yet although their left subtree has
+	private int[] stack;
+
+	// A pointer to the top of the stack
+	private int pointer;
+
+	// The modification count of the tree when this
+	// iterator was created. If the tree's count differs,
+	// the structure of the tree has been modified.
+	private final int expectedModCount;
+
+	/**
+	 * The constructor. It starts at the smallest
+	 * element of the given tree.
+	 * @param    tree   the tree to iterate over
+	 */
+	StudentIndexIterator( StudentIndexTreeSet<?> tree ) {
+		this.tree = tree;
+		this.expectedModCount = tree.modCount;
+		this.stack = new int[ tree.maxHeight * 2 + 2 ];
+		this.pointer = pushLeft( tree.root, -1 );
+	}
+
+	/**
+	 * This method pushes a node and its chain of
+	 * left children onto the stack.
+	 * @param    node      the node to start from
+	 * @param    pointer   the top of the stack
+	 * @return   int       the new top of the stack
+	 */
+	private int pushLeft( int node, int pointer ) {
+		while( node != StudentIndexTreeSet.NIL ) {
+			if( ++pointer == stack.length ) {
+				stack = Arrays.copyOf( stack, stack.length * 2 );
+			}
+			stack[pointer] = node;
+			node = tree.left[node];
+		}
+		return pointer;
+	}
+
+	/**
+	 * This method returns true if there is an element
+	 * that has not been returned yet.
+	 * @return   boolean   true if there is another element,
+	 *                     false otherwise
+	 */
+	public boolean hasNext() {
+		return pointer >= 0;
+	}
+
+	/**
+	 * This method moves to the node holding the next
+	 * element in order and returns it.
+	 * @return   int   the index of the node
+	 * @throws   ConcurrentModificationException   if the tree
+	 *                                             was modified
+	 * @throws   NoSuchElementException   if every element
+	 *                                    has been returned
+	 */
+	final int nextNode() {
+
+		// If a modification has been made to the
+		// tree structure, fail fast
+		if( expectedModCount != tree.modCount ) {
+			throw new ConcurrentModificationException();
+		}
+
+		// If every element has been returned,
+		// there is no next one
+		if( pointer < 0 ) {
+			throw new NoSuchElementException();
+		}
+		int node = stack[pointer];
+		pointer = pushLeft( tree.right[node], pointer - 1 );
+		return node;
+	}
+}
@@ -0,0 +1,297 @@
+import java.util.AbstractSet;
+import java.util.Arrays;
+
+/**
+ * The part of StudentIntTreeSet, StudentLongTreeSet and
+ * StudentCompactTreeSet that does not depend on the type of
+ * their elements. Every node is an index into parallel arrays.
+ * This class keeps the arrays of left and right child indexes,
+ * and a subclass keeps the elements in an array of its own type
+ * and searches them itself, so a comparison is never a call
+ * through this class.
+ *
+ * No node knows its parent. A subclass records the path from
+ * the root while it searches for the place of a new element,
+ * and when the element is placed too deep, the scapegoat is
+ * found by walking back up that path. Only the subtree of the
+ * lowest unbalanced ancestor is rebuilt, so add() and contains()
+ * take O( log n ) time.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ *
+ * @param    <E>   the type of the elements
+ */
+abstract class StudentIndexTreeSet < E > extends AbstractSet < E > {
+
+	// The index used for a missing child
+	static final int NIL = -1;
+
+	// The index of the left and right child of each node
+	int[] left;
+	int[] right;
+
+	// The index of the top of the tree
+	int root = NIL;
+
+	// The number of elements in the tree, which is
+	// also the index of the next free node
+	int size = 0;
+
+	// The number of modifications made to the structure
+	// of the tree. Iterators compare it with the count at
+	// their creation to detect concurrent modifications.
+	int modCount = 0;
+
+	// Height of a perfectly balanced tree holding
+	// the elements of this tree, at least 3
+	int maxHeight = 3;
+
+	// Constant factor used to determine how far
+	// past maxHeight an element may be placed
+	// before the tree is rebalanced
+	private double rangeFactor = 1.75;
+
+	// The nodes from the root down to the node being added
+	int[] path = new int[16];
+
+	// The nodes of the subtree being rebuilt, in order.
+	// It is kept between rebuilds so it is not reallocated.
+	private int[] rebuildNodes = new int[0];
+
+	// Used to fill the rebuildNodes array
+	private int rebuildPointer = 0;
+
+	/**
+	 * The constructor. It creates an empty tree with room
+	 * for the given number of elements before it grows.
+	 * @param    capacity   the initial number of nodes
+	 */
+	StudentIndexTreeSet( int capacity ) {
+		capacity = Math.max( capacity, 1 );
+		left = new int[capacity];
+		right = new int[capacity];
+	}
+
+	/**
+	 * This method makes the array of elements of the
+	 * subclass as long as the arrays of child indexes.
+	 * @param    capacity   the new number of nodes
+	 */
+	abstract void resize( int capacity );
+
+	/**
+	 * This method creates a node without children,
+	 * doubling the arrays if they are full. The subclass
+	 * stores the element of the node at its index.
+	 * @return   int   the index of the new node
+	 */
+	final int newNode() {
+		if( size == left.length ) {
+			int capacity = left.length * 2;
+			left = Arrays.copyOf( left, capacity );
+			right = Arrays.copyOf( right, capacity );
+			resize( capacity );
+		}
+		int node = size;
+		left[node] = NIL;
+		right[node] = NIL;
+		return node;
+	}
+
+	/**
+	 * This method records a node at the given depth of
+	 * the path, doubling the path if it is full.
+	 * @param    depth   the depth of the node
+	 * @param    node    the node
+	 */
+	final void record( int depth, int node ) {
+		if( depth == path.length ) {
+			path = Arrays.copyOf( path, depth * 2 );
+		}
+		path[depth] = node;
+	}
+
+	/**
+	 * This method links a new node into the tree below the
+	 * last node of the path, or makes it the root if the path
+	 * is empty. It then counts the node, and rebuilds the
+	 * unbalanced subtree if the node was placed too deep.
+	 * @param    node      the new node
+	 * @param    depth     the depth of the new node, whose
+	 *                     ancestors are at the front of path
+	 * @param    smaller   true if the node is the left child
+	 *                     of its parent, false if the right
+	 */
+	final void link( int node, int depth, boolean smaller ) {
+		if( depth == 0 ) {
+			root = node;
+		}
+		else if( smaller ) {
+			left[ path[depth - 1] ] = node;
+		}
+		else{
+			right[ path[depth - 1] ] = node;
+		}
+
+		// Record that a modification has
+		// been made to the structure
+		modCount++;
+		size++;
+
+		// If the number of elements exceeds the
+		// amount that would be present in a full tree
+		// of height equal to maxHeight, than increase
+		// maxHeight by one.
+		if( size > ( 1L << maxHeight ) - 1 ) {
+			maxHeight++;
+		}
+
+		// If the node was placed deeper than the maximum
+		// height times the range factor, rebuild the
+		// unbalanced subtree.
+		if( depth >= maxHeight * rangeFactor ) {
+			rebalance( node, depth );
+		}
+	}
+
+	/**
+	 * This method finds the scapegoat of a node that was
+	 * placed too deep and rebuilds the subtree rooted at it,
+	 * in the same way as StudentTreeSet does, walking up
+	 * the recorded path instead of following parent links.
+	 * @param    node    the node that was placed too deep
+	 * @param    depth   the depth of the node, whose
+	 *                   ancestors are at the front of path
+	 */
+	private void rebalance( int node, int depth ) {
+
+		// The largest share of an ancestor's elements
+		// that one of its children may hold
+		double alpha = Math.pow( 0.5, 1.0 / rangeFactor );
+
+		// Walk up the insert path, counting the
+		// elements below each ancestor
+		int child = node;
+		int childSize = 1;
+		for( int index = depth - 1; index >= 0; index-- ) {
+			int ancestor = path[index];
+			int sibling = left[ancestor] == child ? right[ancestor] : left[ancestor];
+			int ancestorSize = childSize + 1 + count( sibling );
+
+			// If the child is too heavy, the ancestor
+			// is the scapegoat
+			if( childSize > alpha * ancestorSize ) {
+				rebuild( ancestor, ancestorSize, index > 0 ? path[index - 1] : NIL );
+				return;
+			}
+			child = ancestor;
+			childSize = ancestorSize;
+		}
+		rebuild( root, size, NIL );
+	}
+
+	/**
+	 * This method recursively counts the nodes in a subtree.
+	 * @param    node   the root of the subtree
+	 * @return   int    the number of nodes in the subtree
+	 */
+	private int count( int node ) {
+		if( node == NIL ) {
+			return 0;
+		}
+		return count( left[node] ) + 1 + count( right[node] );
+	}
+
+	/**
+	 * This method rebuilds a subtree into a perfectly
+	 * balanced one. It collects the indexes of the nodes
+	 * in order and links them again from the middle out.
+	 * @param    node    the root of the subtree to rebuild
+	 * @param    count   the number of nodes in the subtree
+	 * @param    above   the parent of the subtree, or NIL
+	 */
+	private void rebuild( int node, int count, int above ) {
+
+		// Collect the nodes of the subtree in order
+		if( rebuildNodes.length < count ) {
+			rebuildNodes = new int[ Math.max( count, rebuildNodes.length * 2 ) ];
+		}
+		rebuildPointer = 0;
+		collect( node );
+
+		// Link them into a balanced subtree, and put
+		// it where the old subtree was
+		int balanced = build( 0, count - 1 );
+		if( above == NIL ) {
+			root = balanced;
+		}
+		else if( left[above] == node ) {
+			left[above] = balanced;
+		}
+		else{
+			right[above] = balanced;
+		}
+	}
+
+	/**
+	 * This method recursively places the nodes of
+	 * a subtree into the rebuildNodes array in order.
+	 * @param    node   the node under consideration
+	 */
+	private void collect( int node ) {
+		while( node != NIL ) {
+			collect( left[node] );
+			rebuildNodes[rebuildPointer++] = node;
+			node = right[node];
+		}
+	}
+
+	/**
+	 * This method recursively links a segment of the
+	 * rebuildNodes array into a balanced tree.
+	 * @param    start   the first index of the segment
+	 * @param    end     the last index of the segment
+	 * @return   int     the root of the new subtree
+	 */
+	private int build( int start, int end ) {
+		if( start > end ) {
+			return NIL;
+		}
+		int middle = start + ( end - start ) / 2;
+		int node = rebuildNodes[middle];
+		left[node] = build( start, middle - 1 );
+		right[node] = build( middle + 1, end );
+		return node;
+	}
+
+	/**
+	 * This method clears the tree of all elements. The
+	 * arrays are kept, so filling the tree again does
+	 * not allocate anything.
+	 */
+	public void clear() {
+		modCount++;
+		root = NIL;
+		size = 0;
+		maxHeight = 3;
+	}
+
+	/**
+	 * Returns the size of the tree.
+	 * @return   size   the number of elements
+	 *                  in the tree.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method returns true if the
+	 * tree is empty and false otherwise.
+	 * @return   boolean   true if the tree is empty,
+	 *                     false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+}
@@ -0,0 +1,42 @@
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * This class serves as an iterator over a StudentIntTreeSet
+ * object. It returns the keys as int values, so nothing is
+ * boxed. No node knows its parent, so it keeps a stack of the
+ * nodes between the root and the next key, which
+ * StudentIndexIterator walks.
+ * @author   Ajinkya Kolhe
+ * @author   Kyle McGlynn
+ */
+public class StudentIntIterator extends StudentIndexIterator implements PrimitiveIterator.OfInt {
+
+	// A reference to the creating
+	// StudentIntTreeSet object
+	StudentIntTreeSet tree;
+
+	/**
+	 * The constructor. It takes as an argument a reference
+	 * to the StudentIntTreeSet object that creates it.
+	 * @param    tree   a reference to the StudentIntTreeSet
+	 *                  object that created this iterator
+	 */
+	public StudentIntIterator( StudentIntTreeSet tree ) {
+		super( tree );
+		this.tree = tree;
+	}
+
+	/**
+	 * Returns the next key in order.
+	 * @return   int   the next key
+	 * @throws   ConcurrentModificationException   if the tree
+	 *                                             was modified
+	 * @throws   NoSuchElementException   if every key
+	 *                                    has been returned
+	 */
+	public int nextInt() {
+		return tree.keys[ nextNode() ];
+	}
+}
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/**
+ * A self balancing binary search tree of int values with
+ * the properties of a set. Instead of a Node object holding
+ * a boxed Integer, every node is an index into parallel arrays
+ * of keys and of left and right child indexes. That takes 12
+ * bytes per element and keeps the keys next to each other in
+ * memory, so comparisons do not have to follow a pointer.
+ *
+ * Like StudentTreeSet with partial rebuilding, it rebuilds
+ * only the subtree of the lowest unbalanced ancestor when an
+ * element is placed too deep, so add() and contains() take
+ * O( log n ) time. The balancing is done by
+ * StudentIndexTreeSet, which this class shares with
+ * StudentLongTreeSet and StudentCompactTreeSet.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ */
+public class StudentIntTreeSet extends StudentIndexTreeSet < Integer > {
+
+	// The key stored in each node
+	int[] keys;
+
+	/**
+	 * The constructor. It creates an empty tree.
+	 */
+	public StudentIntTreeSet() {
+		this( 16 );
+	}
+
+	/**
+	 * The constructor. It creates an empty tree with room
+	 * for the given number of elements before it grows.
+	 * @param    capacity   the initial number of nodes
+	 */
+	public StudentIntTreeSet( int capacity ) {
+		super( capacity );
+		keys = new int[ left.length ];
+	}
+
+	void resize( int capacity ) {
+		keys = Arrays.copyOf( keys, capacity );
+	}
+
+	/**
+	 * This method adds a key to the tree. If the key
+	 * already exists in this tree, then this method
+	 * returns false.
+	 * @param    key       the key to add
+	 * @return   boolean   true if the key could be
+	 *                     added, false otherwise
+	 */
+	public boolean add( int key ) {
+
+		// The depth at which the node is placed
+		int depth = 0;
+
+		// Bubble down from the root, recording the
+		// path, until an empty position is reached
+		boolean smaller = false;
+		int ancestor = root;
+		while( ancestor != NIL ) {
+			int current = keys[ancestor];
+
+			// If the key is already in the tree,
+			// it could not be added, so return false
+			if( key == current ) {
+				return false;
+			}
+			record( depth++, ancestor );
+
+			// Move to the child on the key's side
+			smaller = key < current;
+			ancestor = smaller ? left[ancestor] : right[ancestor];
+		}
+
+		// Put a new node in the empty position
+		int node = newNode();
+		keys[node] = key;
+		link( node, depth, smaller );
+		return true;
+	}
+
+	/**
+	 * This method adds an Integer to the tree.
+	 * @param    e         the Integer to add
+	 * @return   boolean   true if it could be added,
+	 *                     false otherwise
+	 */
+	public boolean add( Integer e ) {
+		return add( e.intValue() );
+	}
+
+	/**
+	 * This method determines if a key exists in the tree.
+	 * @param    key       the key we are looking for
+	 * @return   boolean   true the tree contains the key,
+	 *                     false otherwise
+	 */
+	public boolean contains( int key ) {
+		int node = root;
+		while( node != NIL ) {
+			int current = keys[node];
+			if( key == current ) {
+				return true;
+			}
+			node = key < current ? left[node] : right[node];
+		}
+		return false;
+	}
+
+	/**
+	 * This method determines if an object exists in the tree.
+	 * @param    object    the object we are looking for
+	 * @return   boolean   true the tree contains the object,
+	 *                     false otherwise
+	 */
+	public boolean contains( Object object ) {
+		return object instanceof Integer && contains( ( ( Integer ) object ).intValue() );
+	}
+
+	/**
+	 * Returns a read only copy of the tree that keeps its
+	 * keys in one int array in Eytzinger order, for sets that
+	 * are searched far more often than changed. Later changes
+	 * to the tree are not seen by the copy.
+	 * @return   FrozenStudentIntTreeSet   the copy
+	 */
+	public FrozenStudentIntTreeSet freeze() {
+		int[] sorted = new int[size];
+		int index = 0;
+		StudentIntIterator iter = iterator();
+		while( iter.hasNext() ) {
+			sorted[index++] = iter.nextInt();
+		}
+		return new FrozenStudentIntTreeSet( sorted );
+	}
+
+	/**
+	 * This method returns a StudentIntIterator object,
+	 * which returns the keys in order without boxing them.
+	 * @return   StudentIntIterator   a StudentIntIterator object
+	 */
+	public StudentIntIterator iterator() {
+		return new StudentIntIterator( this );
+	}
+
+	/**
+	 * The main method. It tests the different methods
+	 * of the StudentIntTreeSet class.
+	 * @param   args   command line arguments ( not used )
+	 */
+	public static void main( String [] args ) {
+
+		// Create a StudentIntTreeSet object
+		StudentIntTreeSet tree = new StudentIntTreeSet();
+
+		// Test the add() method for 10,000 elements
+		for( int key = 0; key < 10000; key++ ) {
+			tree.add( key );
+		}
+		System.out.println( "Tree is empty: " + tree.isEmpty() +
+				" Number of elements: " + tree.size() );
+
+		// Test the boolean return values of add()
+		System.out.println( tree.add( 5000 ) );   // False
+		System.out.println( tree.add( 10001 ) );   // True
+
+		// Test the contains() method
+		System.out.println( tree.contains( 10000 ) );   // False
+		System.out.println( tree.contains( 20 ) );   // True
+
+		// Test the iterator
+		tree.clear();
+		for( int key = 10; key > 0; key-- ) {
+			tree.add( key );
+		}
+		StudentIntIterator iter = tree.iterator();
+		System.out.println( iter.hasNext() );
+		System.out.println( iter.nextInt() );   // 1
+
+		// Test the toString() method
+		System.out.println( tree );
+	}
+}
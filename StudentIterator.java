@@ -1,102 +1,275 @@
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * This class implements the Iterator interface 
- * and serves as an iterator over a StudentTreeSet object. 
+ * This class implements the Iterator interface
+ * and serves as an iterator over a StudentTreeSet object.
+ * It walks the tree lazily, keeping a small stack of the
+ * nodes between the root and the next element, so creating
+ * it takes O( 1 ) time and the first element O( log n ).
+ *
+ * An iterator can walk the whole tree or only the elements
+ * between two bounds, and in ascending or descending order.
+ * The views returned by the range methods of StudentTreeSet
+ * use it to iterate over their elements.
  * @author   Ajinkya Kolhe
  * @author   Kyle McGlynn
  *
- * @param    <E>   Because this iterator works on a 
+ * @param    <E>   Because this iterator works on a
  *                 StudentTreeSet object, its type parameter
  *                 must be the same as the StudentTreeSet object.
  *                 So, E is any class that implements the
  *                 Comparable interface.
  */
-public class StudentIterator < E extends Comparable < E > > 
+public class StudentIterator < E extends Comparable < E > >
 								implements Iterator < E > {
-	
-	// The in order elements of the StudentTreeSet 
-	// object that creates this iterator.
-	Object[] elements;
-	
+
 	// A reference to the creating
 	// StudentTreeSet object
 	StudentTreeSet<E> tree;
-	
-	// A pointer to the current position in the array 
-	// of elements. It is initialized to 0.
-	int pointer = 0;
-	
-	// A flag that is set to true if any modification
-	// is made to the structure of the non-empty tree 
-	// after this iterator has been created.
-	boolean modification = false;
-	
+
+	// The nodes whose elements have not been returned
+	// yet although the subtree on the near side of them
+	// has been entered. The top of the stack holds the
+	// next element.
+	Node<E>[] stack;
+
+	// A pointer to the top of the stack.
+	// It is -1 when the stack is empty.
+	int pointer = -1;
+
+	// The modification count of the tree when this
+	// iterator was created. If the tree's count differs,
+	// the structure of the tree has been modified.
+	int expectedModCount;
+
+	// The lowest and highest elements that may be returned,
+	// or null if the iterator is not bounded on that side
+	E low;
+	E high;
+
+	// True if the bounds themselves may be returned
+	boolean lowInclusive;
+	boolean highInclusive;
+
+	// True if the elements are returned from
+	// largest to smallest
+	boolean descending;
+
+	// The element returned by the last call to next(),
+	// or null if remove() has been called since
+	E lastReturned;
+
+	// The statistics this iterator was counted in, until
+	// it reaches its end, or null
+	TreeStats stats;
+
 	/**
-	 * The constructor. It takes as arguments an array
-	 * of elements in the StudentTreeSet object that creates
-	 * it and a reference to that same StudentTreeSet object.
-	 * @param    elements   an array of in order elements of the tree
+	 * The constructor. It takes as an argument a reference
+	 * to the StudentTreeSet object that creates it. The
+	 * tree is not walked until the first element is asked for.
 	 * @param    tree       a reference to the StudentTreeSet object
 	 *                      that created this iterator
 	 */
-	public StudentIterator( Object[] elements, StudentTreeSet<E> tree ){
-		this.elements = elements;
+	public StudentIterator( StudentTreeSet<E> tree ){
+		this( tree, null, false, null, false, false );
+	}
+
+	/**
+	 * The constructor. It creates an iterator over the
+	 * elements of the tree between two bounds.
+	 * @param    tree            a reference to the StudentTreeSet
+	 *                           object that created this iterator
+	 * @param    low             the lowest element to return,
+	 *                           or null for no lower bound
+	 * @param    lowInclusive    true if low itself may be returned
+	 * @param    high            the highest element to return,
+	 *                           or null for no upper bound
+	 * @param    highInclusive   true if high itself may be returned
+	 * @param    descending      true to return the elements from
+	 *                           largest to smallest
+	 */
+	StudentIterator( StudentTreeSet<E> tree, E low, boolean lowInclusive,
+			E high, boolean highInclusive, boolean descending ) {
 		this.tree = tree;
+		this.expectedModCount = tree.modCount;
+		this.low = low;
+		this.lowInclusive = lowInclusive;
+		this.high = high;
+		this.highInclusive = highInclusive;
+		this.descending = descending;
+		this.stats = tree.stats;
+		if( stats != null ) {
+			stats.iteratorCreated();
+		}
 	}
-	
+
+	/**
+	 * This method pushes a node onto the stack,
+	 * doubling the size of the stack if it is full.
+	 * @param    node   the node to push
+	 */
+	private void push( Node<E> node ) {
+		if( ++pointer == stack.length ) {
+			stack = Arrays.copyOf( stack, stack.length * 2 );
+		}
+		stack[pointer] = node;
+	}
+
+	/**
+	 * This method pushes a node and its chain of children
+	 * on the near side onto the stack, the left children when
+	 * ascending and the right children when descending. The
+	 * next element ends up at the top of the stack.
+	 * @param    node   the node to start from
+	 */
+	private void pushNear( Node<E> node ) {
+		while( node != null ) {
+			push( node );
+			node = descending ? node.right : node.left;
+		}
+	}
+
+	/**
+	 * This method fills the stack with the path to the
+	 * first element that is past the given one, or at it
+	 * if inclusive is true. If the element is null, the
+	 * path leads to the first element of the tree.
+	 * @param    from        the element to start from
+	 * @param    inclusive   true if from itself may be next
+	 */
+	private void seek( E from, boolean inclusive ) {
+		stack = Node.array( tree.currentHeight + 2 );
+		pointer = -1;
+		if( from == null ) {
+			pushNear( tree.root );
+			return;
+		}
+
+		// Walk down from the root, keeping every node
+		// that could still be the next element
+		Node<E> node = tree.root;
+		while( node != null ) {
+			int comparison = tree.compare( from, node.data );
+			if( descending ) {
+				comparison = -comparison;
+			}
+			if( comparison < 0 || ( comparison == 0 && inclusive ) ) {
+				push( node );
+				node = descending ? node.right : node.left;
+			}
+			else{
+				node = descending ? node.left : node.right;
+			}
+		}
+	}
+
 	/**
 	 * This method returns true if there is an element
-	 * at the current pointer position. 
-	 * @return   boolean   true if there is an element at
-	 *                     the position indicated by pointer,
+	 * that has not been returned yet.
+	 * @return   boolean   true if there is another element,
 	 *                     false otherwise
 	 */
 	public boolean hasNext() {
-		
-		// If pointer has not reached the end and
-		// the element at pointer is not null
-		if( pointer < elements.length &&
-				elements[ pointer ] != null ) {
-			return true;
+
+		// On the first call, walk down to the
+		// first element of the iteration
+		if( stack == null ) {
+			if( descending ) {
+				seek( high, highInclusive );
+			}
+			else{
+				seek( low, lowInclusive );
+			}
+		}
+		if( pointer < 0 ) {
+			return finish();
+		}
+
+		// Check the next element against the far bound
+		E fence = descending ? low : high;
+		if( fence != null ) {
+			int comparison = tree.compare( stack[pointer].data, fence );
+			if( descending ) {
+				comparison = -comparison;
+			}
+			boolean fenceInclusive = descending ? lowInclusive : highInclusive;
+			if( comparison > 0 || ( comparison == 0 && !fenceInclusive ) ) {
+				return finish();
+			}
 		}
-		else{
-			return false;
+		return true;
+	}
+
+	/**
+	 * This method records that the iterator has
+	 * reached its end, the first time it does.
+	 * @return   boolean   false, as there is no next element
+	 */
+	private boolean finish() {
+		if( stats != null ) {
+			stats.iteratorFinished();
+			stats = null;
 		}
+		return false;
 	}
-	
+
 	/**
-	 * Returns the element at the position
-	 * indicated by pointer.
+	 * Returns the next element in order.
+	 * @return   E   the next element
+	 * @throws   ConcurrentModificationException   if the tree
+	 *                                             was modified
+	 *                                             other than
+	 *                                             through this
+	 *                                             iterator
+	 * @throws   NoSuchElementException   if every element
+	 *                                    has been returned
 	 */
-	@SuppressWarnings("unchecked")
 	public E next() {
-		
-		// If modifications have not been made
-		// to the non-empty tree structure.
-		if( !modification && elements.length > 0 ) {
-			
-			// If pointer hasn't reached the end
-			if( pointer < elements.length ){
-				return (E) elements[pointer++];
-			}
-			
-			// If pointer is at the end, display
-			// an error message and close the program.
-			else{
-				System.err.println( "No more elements." );
-				System.exit(0);
-				return null;
-			}
+
+		// If a modification has been made to the
+		// tree structure, fail fast
+		if( expectedModCount != tree.modCount ) {
+			throw new ConcurrentModificationException();
+		}
+
+		// If every element has been returned,
+		// there is no next one
+		if( !hasNext() ) {
+			throw new NoSuchElementException();
+		}
+
+		// Take the next node off the stack, clearing its
+		// slot so the iterator does not keep it alive, and
+		// push the nearest nodes of its far subtree
+		Node<E> node = stack[pointer];
+		stack[pointer--] = null;
+		pushNear( descending ? node.left : node.right );
+		lastReturned = node.data;
+		return node.data;
+	}
+
+	/**
+	 * Removes the element returned by the last call to
+	 * next() from the tree. Because removing can rebuild
+	 * part of the tree, the stack is refilled with the
+	 * path to the element after the removed one.
+	 */
+	public void remove() {
+		if( lastReturned == null ) {
+			throw new IllegalStateException();
 		}
-		
-		// If a modification has been made to the non-empty
-		// tree structure, display an error message and
-		// close the program.
-		else{
-			System.err.println( "Cannot make concurrent modifications!" );
-			System.exit(0);
-			return null;
+
+		// If a modification has been made to the
+		// tree structure, fail fast
+		if( expectedModCount != tree.modCount ) {
+			throw new ConcurrentModificationException();
 		}
+		tree.remove( lastReturned );
+		expectedModCount = tree.modCount;
+		seek( lastReturned, false );
+		lastReturned = null;
 	}
 }
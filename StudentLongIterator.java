@@ -0,0 +1,42 @@
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * This class serves as an iterator over a StudentLongTreeSet
+ * object. It returns the keys as long values, so nothing is
+ * boxed. No node knows its parent, so it keeps a stack of the
+ * nodes between the root and the next key, which
+ * StudentIndexIterator walks.
+ * @author   Ajinkya Kolhe
+ * @author   Kyle McGlynn
+ */
+public class StudentLongIterator extends StudentIndexIterator implements PrimitiveIterator.OfLong {
+
+	// A reference to the creating
+	// StudentLongTreeSet object
+	StudentLongTreeSet tree;
+
+	/**
+	 * The constructor. It takes as an argument a reference
+	 * to the StudentLongTreeSet object that creates it.
+	 * @param    tree   a reference to the StudentLongTreeSet
+	 *                  object that created this iterator
+	 */
+	public StudentLongIterator( StudentLongTreeSet tree ) {
+		super( tree );
+		this.tree = tree;
+	}
+
+	/**
+	 * Returns the next key in order.
+	 * @return   long   the next key
+	 * @throws   ConcurrentModificationException   if the tree
+	 *                                             was modified
+	 * @throws   NoSuchElementException   if every key
+	 *                                    has been returned
+	 */
+	public long nextLong() {
+		return tree.keys[ nextNode() ];
+	}
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+
+/**
+ * A self balancing binary search tree of long values with
+ * the properties of a set. Instead of a Node object holding
+ * a boxed Long, every node is an index into parallel arrays
+ * of keys and of left and right child indexes. That takes 16
+ * bytes per element and keeps the keys next to each other in
+ * memory, so comparisons do not have to follow a pointer.
+ *
+ * Like StudentTreeSet with partial rebuilding, it rebuilds
+ * only the subtree of the lowest unbalanced ancestor when an
+ * element is placed too deep, so add() and contains() take
+ * O( log n ) time. The balancing is done by
+ * StudentIndexTreeSet, which this class shares with
+ * StudentIntTreeSet and StudentCompactTreeSet.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ */
+public class StudentLongTreeSet extends StudentIndexTreeSet < Long > {
+
+	// The key stored in each node
+	long[] keys;
+
+	/**
+	 * The constructor. It creates an empty tree.
+	 */
+	public StudentLongTreeSet() {
+		this( 16 );
+	}
+
+	/**
+	 * The constructor. It creates an empty tree with room
+	 * for the given number of elements before it grows.
+	 * @param    capacity   the initial number of nodes
+	 */
+	public StudentLongTreeSet( int capacity ) {
+		super( capacity );
+		keys = new long[ left.length ];
+	}
+
+	void resize( int capacity ) {
+		keys = Arrays.copyOf( keys, capacity );
+	}
+
+	/**
+	 * This method adds a key to the tree. If the key
+	 * already exists in this tree, then this method
+	 * returns false.
+	 * @param    key       the key to add
+	 * @return   boolean   true if the key could be
+	 *                     added, false otherwise
+	 */
+	public boolean add( long key ) {
+
+		// The depth at which the node is placed
+		int depth = 0;
+
+		// Bubble down from the root, recording the
+		// path, until an empty position is reached
+		boolean smaller = false;
+		int ancestor = root;
+		while( ancestor != NIL ) {
+			long current = keys[ancestor];
+
+			// If the key is already in the tree,
+			// it could not be added, so return false
+			if( key == current ) {
+				return false;
+			}
+			record( depth++, ancestor );
+
+			// Move to the child on the key's side
+			smaller = key < current;
+			ancestor = smaller ? left[ancestor] : right[ancestor];
+		}
+
+		// Put a new node in the empty position
+		int node = newNode();
+		keys[node] = key;
+		link( node, depth, smaller );
+		return true;
+	}
+
+	/**
+	 * This method adds a Long to the tree.
+	 * @param    e         the Long to add
+	 * @return   boolean   true if it could be added,
+	 *                     false otherwise
+	 */
+	public boolean add( Long e ) {
+		return add( e.longValue() );
+	}
+
+	/**
+	 * This method determines if a key exists in the tree.
+	 * @param    key       the key we are looking for
+	 * @return   boolean   true the tree contains the key,
+	 *                     false otherwise
+	 */
+	public boolean contains( long key ) {
+		int node = root;
+		while( node != NIL ) {
+			long current = keys[node];
+			if( key == current ) {
+				return true;
+			}
+			node = key < current ? left[node] : right[node];
+		}
+		return false;
+	}
+
+	/**
+	 * This method determines if an object exists in the tree.
+	 * @param    object    the object we are looking for
+	 * @return   boolean   true the tree contains the object,
+	 *                     false otherwise
+	 */
+	public boolean contains( Object object ) {
+		return object instanceof Long && contains( ( ( Long ) object ).longValue() );
+	}
+
+	/**
+	 * This method returns a StudentLongIterator object,
+	 * which returns the keys in order without boxing them.
+	 * @return   StudentLongIterator   a StudentLongIterator object
+	 */
+	public StudentLongIterator iterator() {
+		return new StudentLongIterator( this );
+	}
+
+	/**
+	 * The main method. It tests the different methods
+	 * of the StudentLongTreeSet class.
+	 * @param   args   command line arguments ( not used )
+	 */
+	public static void main( String [] args ) {
+
+		// Create a StudentLongTreeSet object
+		StudentLongTreeSet tree = new StudentLongTreeSet();
+
+		// Test the add() method for 10,000 elements
+		for( int key = 0; key < 10000; key++ ) {
+			tree.add( key );
+		}
+		System.out.println( "Tree is empty: " + tree.isEmpty() +
+				" Number of elements: " + tree.size() );
+
+		// Test the boolean return values of add()
+		System.out.println( tree.add( 5000 ) );   // False
+		System.out.println( tree.add( 10001 ) );   // True
+
+		// Test the contains() method
+		System.out.println( tree.contains( 10000 ) );   // False
+		System.out.println( tree.contains( 20 ) );   // True
+
+		// Test the iterator
+		tree.clear();
+		for( int key = 10; key > 0; key-- ) {
+			tree.add( key );
+		}
+		StudentLongIterator iter = tree.iterator();
+		System.out.println( iter.hasNext() );
+		System.out.println( iter.nextLong() );   // 1
+
+		// Test the toString() method
+		System.out.println( tree );
+	}
+}
@@ -0,0 +1,351 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * This class implements the Spliterator interface over
+ * a StudentTreeSet object, so the elements of the tree can
+ * be processed in parallel. A spliterator covers one node,
+ * the head, followed by the whole subtree of another node.
+ * Splitting hands the head and the left subtree of that node
+ * to a new spliterator, and keeps the node itself as the head
+ * in front of its right subtree. The tree is balanced, so the
+ * two halves hold close to the same number of elements, and
+ * the subtree sizes make both counts exact.
+ *
+ * The tree must not be changed while it is split. A
+ * spliterator over a snapshot is never affected by changes.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ *
+ * @param    <E>   Because this spliterator works on a
+ *                 StudentTreeSet object, its type parameter
+ *                 must be the same as the StudentTreeSet object.
+ *                 So, E is any class that implements the
+ *                 Comparable interface.
+ */
+public class StudentSpliterator < E extends Comparable < E > >
+								implements Spliterator < E > {
+
+	// A reference to the tree being split
+	StudentTreeSet<E> tree;
+
+	// The node whose element comes first, or null
+	Node<E> head;
+
+	// The root of the subtree whose elements
+	// come after the head, or null
+	Node<E> subtree;
+
+	// The number of elements not returned yet
+	int remaining;
+
+	// The nodes whose elements have not been returned
+	// yet although their left subtree has been, once the
+	// elements of the subtree are being returned
+	Node<E>[] stack;
+
+	// A pointer to the top of the stack.
+	// It is -1 when the stack is empty.
+	int pointer = -1;
+
+	// The modification count of the tree when this
+	// spliterator was created
+	int expectedModCount;
+
+	/**
+	 * The constructor. It creates a spliterator
+	 * over every element of the tree.
+	 * @param    tree   the tree to split
+	 */
+	public StudentSpliterator( StudentTreeSet<E> tree ) {
+		this( tree, null, tree.root );
+	}
+
+	/**
+	 * The constructor. It creates a spliterator over
+	 * a node followed by the subtree of another node.
+	 * @param    tree      the tree to split
+	 * @param    head      the first node, or null
+	 * @param    subtree   the subtree after it, or null
+	 */
+	StudentSpliterator( StudentTreeSet<E> tree, Node<E> head, Node<E> subtree ) {
+		this.tree = tree;
+		this.head = head;
+		this.subtree = subtree;
+		this.remaining = ( head == null ? 0 : 1 ) + ( subtree == null ? 0 : subtree.size );
+		this.expectedModCount = tree.modCount;
+	}
+
+	/**
+	 * This method splits off the first part of the elements.
+	 * Once the elements have started to be returned, or the
+	 * subtree is empty, it cannot split any more.
+	 * @return   Spliterator<E>   a spliterator over the head and
+	 *                            the left subtree, or null
+	 */
+	public Spliterator<E> trySplit() {
+		if( stack != null || subtree == null ) {
+			return null;
+		}
+		StudentSpliterator<E> prefix = new StudentSpliterator<E>( tree, head, subtree.left );
+		head = subtree;
+		subtree = subtree.right;
+		remaining -= prefix.remaining;
+		return prefix;
+	}
+
+	/**
+	 * This method pushes a node and its chain of left
+	 * children onto the stack, doubling it if it is full.
+	 * @param    node   the node to start from
+	 */
+	private void pushLeft( Node<E> node ) {
+		while( node != null ) {
+			if( ++pointer == stack.length ) {
+				stack = Arrays.copyOf( stack, stack.length * 2 );
+			}
+			stack[pointer] = node;
+			node = node.left;
+		}
+	}
+
+	/**
+	 * This method passes the next element to the action.
+	 * @param    action    the action to perform
+	 * @return   boolean   true if there was an element
+	 */
+	public boolean tryAdvance( Consumer<? super E> action ) {
+
+		// On the first call, walk down to the
+		// first element of the subtree
+		if( stack == null ) {
+			stack = Node.array( tree.currentHeight + 2 );
+			pushLeft( subtree );
+		}
+		Node<E> node;
+		if( head != null ) {
+			node = head;
+			head = null;
+		}
+		else if( pointer >= 0 ) {
+			node = stack[pointer];
+			stack[pointer--] = null;
+			pushLeft( node.right );
+		}
+		else{
+			return false;
+		}
+		remaining--;
+		action.accept( node.data );
+		checkForModification();
+		return true;
+	}
+
+	/**
+	 * This method passes every remaining element to the
+	 * action in order, and checks for a modification once
+	 * at the end.
+	 * @param    action   the action to perform
+	 */
+	public void forEachRemaining( Consumer<? super E> action ) {
+		if( stack != null ) {
+			while( tryAdvance( action ) ) {
+			}
+			return;
+		}
+		if( head != null ) {
+			action.accept( head.data );
+		}
+		forEach( subtree, action );
+		head = null;
+		subtree = null;
+		remaining = 0;
+		checkForModification();
+	}
+
+	/**
+	 * This method recursively passes the elements
+	 * of a subtree to the action in order. The tree is
+	 * balanced, so the recursion is no deeper than it is.
+	 * @param    node     the root of the subtree
+	 * @param    action   the action to perform
+	 */
+	private void forEach( Node<E> node, Consumer<? super E> action ) {
+		while( node != null ) {
+			forEach( node.left, action );
+			action.accept( node.data );
+			node = node.right;
+		}
+	}
+
+	/**
+	 * This method throws a ConcurrentModificationException
+	 * if the tree was changed while it was being split.
+	 */
+	private void checkForModification() {
+		if( expectedModCount != tree.modCount ) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	/**
+	 * Returns the number of elements not returned yet,
+	 * which is exact.
+	 * @return   long   the number of elements
+	 */
+	public long estimateSize() {
+		return remaining;
+	}
+
+	/**
+	 * Returns the characteristics of the spliterator. The
+	 * elements are in ascending order without duplicates or
+	 * nulls, and the size of every split is known.
+	 * @return   int   the characteristics
+	 */
+	public int characteristics() {
+		return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED |
+				Spliterator.DISTINCT | Spliterator.ORDERED | Spliterator.NONNULL;
+	}
+
+	/**
+	 * Returns the order of the tree, which is null
+	 * if the elements are in their natural order.
+	 * @return   Comparator<? super E>   the order of the tree
+	 */
+	public Comparator<? super E> getComparator() {
+		return tree.comparator();
+	}
+
+	/**
+	 * This class performs an action on the elements of
+	 * a spliterator in the common ForkJoinPool, splitting it
+	 * until each part holds at most leafSize elements.
+	 *
+	 * @param    <E>   the type of the elements
+	 */
+	@SuppressWarnings("serial")
+	static class ForEachTask < E > extends RecursiveAction {
+
+		// The elements of this task
+		Spliterator<E> elements;
+
+		// The action to perform on each element
+		Consumer<? super E> action;
+
+		// The largest number of elements a task
+		// handles without splitting
+		long leafSize;
+
+		/**
+		 * The constructor.
+		 * @param    elements   the elements of this task
+		 * @param    action     the action to perform
+		 * @param    leafSize   the largest number of elements
+		 *                      handled without splitting
+		 */
+		ForEachTask( Spliterator<E> elements, Consumer<? super E> action, long leafSize ) {
+			this.elements = elements;
+			this.action = action;
+			this.leafSize = leafSize;
+		}
+
+		/**
+		 * This method splits the elements in two until the
+		 * part left is small, running the other parts as
+		 * tasks of their own.
+		 */
+		protected void compute() {
+			Spliterator<E> prefix;
+			if( elements.estimateSize() > leafSize &&
+					( prefix = elements.trySplit() ) != null ) {
+				invokeAll( new ForEachTask<E>( prefix, action, leafSize ),
+						new ForEachTask<E>( elements, action, leafSize ) );
+			}
+			else{
+				elements.forEachRemaining( action );
+			}
+		}
+	}
+
+	/**
+	 * This class reduces the elements of a spliterator to
+	 * one result in the common ForkJoinPool. Each part is
+	 * reduced with the accumulator, and the results of the
+	 * parts are combined in order.
+	 *
+	 * @param    <E>   the type of the elements
+	 * @param    <R>   the type of the result
+	 */
+	@SuppressWarnings("serial")
+	static class ReduceTask < E, R > extends RecursiveTask < R > {
+
+		// The elements of this task
+		Spliterator<E> elements;
+
+		// The result of reducing no elements
+		R identity;
+
+		// Adds one element to a result
+		BiFunction<R, ? super E, R> accumulator;
+
+		// Combines the results of two parts
+		BinaryOperator<R> combiner;
+
+		// The largest number of elements a task
+		// handles without splitting
+		long leafSize;
+
+		/**
+		 * The constructor.
+		 * @param    elements      the elements of this task
+		 * @param    identity      the result of reducing no elements
+		 * @param    accumulator   adds one element to a result
+		 * @param    combiner      combines the results of two parts
+		 * @param    leafSize      the largest number of elements
+		 *                         handled without splitting
+		 */
+		ReduceTask( Spliterator<E> elements, R identity, BiFunction<R, ? super E, R> accumulator,
+				BinaryOperator<R> combiner, long leafSize ) {
+			this.elements = elements;
+			this.identity = identity;
+			this.accumulator = accumulator;
+			this.combiner = combiner;
+			this.leafSize = leafSize;
+		}
+
+		/**
+		 * This method splits the elements in two until the
+		 * part left is small, reducing the first part in a
+		 * task of its own while this one reduces the rest.
+		 * @return   R   the result
+		 */
+		@SuppressWarnings("unchecked")
+		protected R compute() {
+			Spliterator<E> prefix;
+			if( elements.estimateSize() > leafSize &&
+					( prefix = elements.trySplit() ) != null ) {
+				ReduceTask<E, R> first = new ReduceTask<E, R>( prefix, identity,
+						accumulator, combiner, leafSize );
+				first.fork();
+				R rest = new ReduceTask<E, R>( elements, identity,
+						accumulator, combiner, leafSize ).compute();
+				return combiner.apply( first.join(), rest );
+			}
+			final Object[] result = { identity };
+			elements.forEachRemaining( new Consumer<E>() {
+				public void accept( E e ) {
+					result[0] = accumulator.apply( ( R ) result[0], e );
+				}
+			} );
+			return ( R ) result[0];
+		}
+	}
+}
@@ -0,0 +1,483 @@
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * This class is a live view of the elements of a
+ * StudentTreeSet object that lie between two bounds,
+ * in ascending or descending order. It holds no elements
+ * of its own: every method works directly on the nodes
+ * of the tree, so changes to the view are made to the
+ * tree and changes to the tree are seen by the view.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ *
+ * @param    <E>   Because this view works on a
+ *                 StudentTreeSet object, its type parameter
+ *                 must be the same as the StudentTreeSet object.
+ *                 So, E is any class that implements the
+ *                 Comparable interface.
+ */
+public class StudentSubSet < E extends Comparable < E > >
+								extends AbstractSet < E >
+								implements NavigableSet < E > {
+
+	// The tree this is a view of
+	StudentTreeSet<E> tree;
+
+	// The lowest and highest elements of the view, or
+	// null if the view is not bounded on that side. They
+	// are always in the ascending order of the tree.
+	E low;
+	E high;
+
+	// True if the bounds themselves are in the view
+	boolean lowInclusive;
+	boolean highInclusive;
+
+	// True if the view is in descending order
+	boolean descending;
+
+	/**
+	 * The constructor. It creates a view of the elements
+	 * of the tree between two bounds.
+	 * @param    tree            the tree this is a view of
+	 * @param    low             the lowest element of the view,
+	 *                           or null for no lower bound
+	 * @param    lowInclusive    true if low is in the view
+	 * @param    high            the highest element of the view,
+	 *                           or null for no upper bound
+	 * @param    highInclusive   true if high is in the view
+	 * @param    descending      true if the view is in
+	 *                           descending order
+	 */
+	StudentSubSet( StudentTreeSet<E> tree, E low, boolean lowInclusive,
+			E high, boolean highInclusive, boolean descending ) {
+		this.tree = tree;
+		this.low = low;
+		this.lowInclusive = lowInclusive;
+		this.high = high;
+		this.highInclusive = highInclusive;
+		this.descending = descending;
+	}
+
+	/**
+	 * This method returns true if an object
+	 * is below the lower bound of the view.
+	 * @param    object    the object to check
+	 * @return   boolean   true if it is too low
+	 */
+	boolean tooLow( Object object ) {
+		if( low != null ) {
+			int comparison = tree.compare( object, low );
+			if( comparison < 0 || ( comparison == 0 && !lowInclusive ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method returns true if an object
+	 * is above the upper bound of the view.
+	 * @param    object    the object to check
+	 * @return   boolean   true if it is too high
+	 */
+	boolean tooHigh( Object object ) {
+		if( high != null ) {
+			int comparison = tree.compare( object, high );
+			if( comparison > 0 || ( comparison == 0 && !highInclusive ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method returns true if an object
+	 * lies between the bounds of the view.
+	 * @param    object    the object to check
+	 * @return   boolean   true if it is in range
+	 */
+	boolean inRange( Object object ) {
+		return !tooLow( object ) && !tooHigh( object );
+	}
+
+	/**
+	 * This method returns true if an object lies between
+	 * the bounds of the view, counting the bounds themselves
+	 * even if they are not in the view. It is used to check
+	 * the bounds of a smaller view.
+	 * @param    object      the object to check
+	 * @param    inclusive   true if the object must be
+	 *                       in the view itself
+	 * @return   boolean     true if it is in range
+	 */
+	boolean inRange( Object object, boolean inclusive ) {
+		if( inclusive ) {
+			return inRange( object );
+		}
+		return ( low == null || tree.compare( object, low ) >= 0 ) &&
+				( high == null || tree.compare( object, high ) <= 0 );
+	}
+
+	/**
+	 * Returns the data of a node if it lies
+	 * between the bounds of the view.
+	 * @param    node   a node of the tree, or null
+	 * @return   E      its data, or null if there is no
+	 *                  node or it is outside the view
+	 */
+	private E inView( Node<E> node ) {
+		if( node == null || !inRange( node.data ) ) {
+			return null;
+		}
+		return node.data;
+	}
+
+	/**
+	 * Returns the smallest element of the view
+	 * in the ascending order of the tree.
+	 * @return   E   the element, or null if the view is empty
+	 */
+	E lowest() {
+		Node<E> node = low == null ? tree.lowestNode() :
+			tree.ceilingNode( low, lowInclusive );
+		return inView( node );
+	}
+
+	/**
+	 * Returns the largest element of the view
+	 * in the ascending order of the tree.
+	 * @return   E   the element, or null if the view is empty
+	 */
+	E highest() {
+		Node<E> node = high == null ? tree.highestNode() :
+			tree.floorNode( high, highInclusive );
+		return inView( node );
+	}
+
+	/**
+	 * Returns the smallest element of the view in the
+	 * ascending order of the tree that is greater than
+	 * the given one, or equal to it if inclusive is true.
+	 * @param    e           the element to compare with
+	 * @param    inclusive   true if an equal element counts
+	 * @return   E           the element, or null if there is none
+	 */
+	E ceiling( E e, boolean inclusive ) {
+		if( tooLow( e ) ) {
+			return lowest();
+		}
+		return inView( tree.ceilingNode( e, inclusive ) );
+	}
+
+	/**
+	 * Returns the largest element of the view in the
+	 * ascending order of the tree that is less than the
+	 * given one, or equal to it if inclusive is true.
+	 * @param    e           the element to compare with
+	 * @param    inclusive   true if an equal element counts
+	 * @return   E           the element, or null if there is none
+	 */
+	E floor( E e, boolean inclusive ) {
+		if( tooHigh( e ) ) {
+			return highest();
+		}
+		return inView( tree.floorNode( e, inclusive ) );
+	}
+
+	/**
+	 * Returns the number of elements in the view. It
+	 * counts the elements below each bound using the
+	 * subtree sizes of the tree, in O( log n ) time.
+	 * @return   int   the number of elements
+	 */
+	public int size() {
+		int below = high == null ? tree.size() : tree.countBelow( high, highInclusive );
+		int under = low == null ? 0 : tree.countBelow( low, !lowInclusive );
+		return Math.max( 0, below - under );
+	}
+
+	/**
+	 * Returns true if the view has no elements.
+	 * @return   boolean   true if the view is empty
+	 */
+	public boolean isEmpty() {
+		return lowest() == null;
+	}
+
+	/**
+	 * Returns true if the object is in the view.
+	 * @param    object    the object to look for
+	 * @return   boolean   true if it is in the view
+	 */
+	public boolean contains( Object object ) {
+		return inRange( object ) && tree.contains( object );
+	}
+
+	/**
+	 * Adds an element to the tree through the view.
+	 * @param    e         the element to add
+	 * @return   boolean   true if it was added
+	 * @throws   IllegalArgumentException   if the element is
+	 *                                      outside the view
+	 */
+	public boolean add( E e ) {
+		if( !inRange( e ) ) {
+			throw new IllegalArgumentException( "element out of range" );
+		}
+		return tree.add( e );
+	}
+
+	/**
+	 * Removes an object from the tree if it is in the view.
+	 * @param    object    the object to remove
+	 * @return   boolean   true if it was removed
+	 */
+	public boolean remove( Object object ) {
+		return inRange( object ) && tree.remove( object );
+	}
+
+	/**
+	 * Returns an iterator over the view in its order.
+	 * @return   Iterator<E>   the iterator
+	 */
+	public Iterator<E> iterator() {
+		return new StudentIterator<E>( tree, low, lowInclusive,
+				high, highInclusive, descending );
+	}
+
+	/**
+	 * Returns an iterator over the view in reverse order.
+	 * @return   Iterator<E>   the iterator
+	 */
+	public Iterator<E> descendingIterator() {
+		return new StudentIterator<E>( tree, low, lowInclusive,
+				high, highInclusive, !descending );
+	}
+
+	/**
+	 * Returns the order of the view, or null
+	 * for the natural ordering.
+	 * @return   Comparator<? super E>   the order of the view
+	 */
+	public Comparator<? super E> comparator() {
+		return descending ? Collections.reverseOrder( tree.comparator() ) : tree.comparator();
+	}
+
+	/**
+	 * Returns the first element of the view.
+	 * @return   E   the first element
+	 * @throws   NoSuchElementException   if the view is empty
+	 */
+	public E first() {
+		E e = descending ? highest() : lowest();
+		if( e == null ) {
+			throw new NoSuchElementException();
+		}
+		return e;
+	}
+
+	/**
+	 * Returns the last element of the view.
+	 * @return   E   the last element
+	 * @throws   NoSuchElementException   if the view is empty
+	 */
+	public E last() {
+		E e = descending ? lowest() : highest();
+		if( e == null ) {
+			throw new NoSuchElementException();
+		}
+		return e;
+	}
+
+	/**
+	 * Returns the last element of the view before
+	 * the given one, or null if there is none.
+	 * @param    e   the element to compare with
+	 * @return   E   the element found
+	 */
+	public E lower( E e ) {
+		return descending ? ceiling( e, false ) : floor( e, false );
+	}
+
+	/**
+	 * Returns the last element of the view before or
+	 * equal to the given one, or null if there is none.
+	 * @param    e   the element to compare with
+	 * @return   E   the element found
+	 */
+	public E floor( E e ) {
+		return descending ? ceiling( e, true ) : floor( e, true );
+	}
+
+	/**
+	 * Returns the first element of the view after or
+	 * equal to the given one, or null if there is none.
+	 * @param    e   the element to compare with
+	 * @return   E   the element found
+	 */
+	public E ceiling( E e ) {
+		return descending ? floor( e, true ) : ceiling( e, true );
+	}
+
+	/**
+	 * Returns the first element of the view after
+	 * the given one, or null if there is none.
+	 * @param    e   the element to compare with
+	 * @return   E   the element found
+	 */
+	public E higher( E e ) {
+		return descending ? floor( e, false ) : ceiling( e, false );
+	}
+
+	/**
+	 * Removes and returns the first element of the view.
+	 * @return   E   the first element, or null if
+	 *               the view is empty
+	 */
+	public E pollFirst() {
+		E e = descending ? highest() : lowest();
+		if( e != null ) {
+			tree.remove( e );
+		}
+		return e;
+	}
+
+	/**
+	 * Removes and returns the last element of the view.
+	 * @return   E   the last element, or null if
+	 *               the view is empty
+	 */
+	public E pollLast() {
+		E e = descending ? lowest() : highest();
+		if( e != null ) {
+			tree.remove( e );
+		}
+		return e;
+	}
+
+	/**
+	 * Returns a view of this view in the opposite order.
+	 * @return   NavigableSet<E>   the reversed view
+	 */
+	public NavigableSet<E> descendingSet() {
+		return new StudentSubSet<E>( tree, low, lowInclusive,
+				high, highInclusive, !descending );
+	}
+
+	/**
+	 * Returns a view of the elements of this view from
+	 * fromElement to toElement, in the order of this view.
+	 * @param    fromElement       the first element of the view
+	 * @param    fromInclusive     true if fromElement is in the view
+	 * @param    toElement         the last element of the view
+	 * @param    toInclusive       true if toElement is in the view
+	 * @return   NavigableSet<E>   the view
+	 * @throws   IllegalArgumentException   if the elements are
+	 *                                      out of order or outside
+	 *                                      this view
+	 */
+	public NavigableSet<E> subSet( E fromElement, boolean fromInclusive,
+			E toElement, boolean toInclusive ) {
+
+		// Turn the bounds into the ascending order of the tree
+		if( descending ) {
+			E element = fromElement;
+			fromElement = toElement;
+			toElement = element;
+			boolean inclusive = fromInclusive;
+			fromInclusive = toInclusive;
+			toInclusive = inclusive;
+		}
+		if( tree.compare( fromElement, toElement ) > 0 ) {
+			throw new IllegalArgumentException( "fromElement > toElement" );
+		}
+		if( !inRange( fromElement, fromInclusive ) ) {
+			throw new IllegalArgumentException( "fromElement out of range" );
+		}
+		if( !inRange( toElement, toInclusive ) ) {
+			throw new IllegalArgumentException( "toElement out of range" );
+		}
+		return new StudentSubSet<E>( tree, fromElement, fromInclusive,
+				toElement, toInclusive, descending );
+	}
+
+	/**
+	 * Returns a view of the elements of this view
+	 * before toElement, in the order of this view.
+	 * @param    toElement         the last element of the view
+	 * @param    inclusive         true if toElement is in the view
+	 * @return   NavigableSet<E>   the view
+	 * @throws   IllegalArgumentException   if toElement is
+	 *                                      outside this view
+	 */
+	public NavigableSet<E> headSet( E toElement, boolean inclusive ) {
+		if( !inRange( toElement, inclusive ) ) {
+			throw new IllegalArgumentException( "toElement out of range" );
+		}
+		if( descending ) {
+			return new StudentSubSet<E>( tree, toElement, inclusive,
+					high, highInclusive, true );
+		}
+		return new StudentSubSet<E>( tree, low, lowInclusive,
+				toElement, inclusive, false );
+	}
+
+	/**
+	 * Returns a view of the elements of this view
+	 * after fromElement, in the order of this view.
+	 * @param    fromElement       the first element of the view
+	 * @param    inclusive         true if fromElement is in the view
+	 * @return   NavigableSet<E>   the view
+	 * @throws   IllegalArgumentException   if fromElement is
+	 *                                      outside this view
+	 */
+	public NavigableSet<E> tailSet( E fromElement, boolean inclusive ) {
+		if( !inRange( fromElement, inclusive ) ) {
+			throw new IllegalArgumentException( "fromElement out of range" );
+		}
+		if( descending ) {
+			return new StudentSubSet<E>( tree, low, lowInclusive,
+					fromElement, inclusive, true );
+		}
+		return new StudentSubSet<E>( tree, fromElement, inclusive,
+				high, highInclusive, false );
+	}
+
+	/**
+	 * Returns a view of the elements of this view from
+	 * fromElement, inclusive, to toElement, exclusive.
+	 * @param    fromElement   the first element of the view
+	 * @param    toElement     the element after the view
+	 * @return   SortedSet<E>  the view
+	 */
+	public SortedSet<E> subSet( E fromElement, E toElement ) {
+		return subSet( fromElement, true, toElement, false );
+	}
+
+	/**
+	 * Returns a view of the elements of this
+	 * view before toElement.
+	 * @param    toElement     the element after the view
+	 * @return   SortedSet<E>  the view
+	 */
+	public SortedSet<E> headSet( E toElement ) {
+		return headSet( toElement, false );
+	}
+
+	/**
+	 * Returns a view of the elements of this view
+	 * from fromElement onwards.
+	 * @param    fromElement   the first element of the view
+	 * @return   SortedSet<E>  the view
+	 */
+	public SortedSet<E> tailSet( E fromElement ) {
+		return tailSet( fromElement, true );
+	}
+}
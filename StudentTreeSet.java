@@ -1,11 +1,53 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.Spliterator;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 /**
  * A self balancing binary search tree with the
  * properties of a set; meaning that all elements
- * only exist once in the tree. The add() and contains()
- * are guaranteed to operate in O( log n ) time by
- * the occasional re-balancing of the tree. 
+ * only exist once in the tree. The add(), remove() and 
+ * contains() are guaranteed to operate in O( log n ) time
+ * by the occasional re-balancing of the tree. It implements
+ * the whole NavigableSet interface on its own nodes, and its
+ * range views are live and iterate lazily. Every node knows
+ * the size of its subtree, so the rank of an element, the
+ * element at a given rank and the number of elements in a
+ * range are found in O( log n ) time as well. A snapshot
+ * of the tree takes O( 1 ) time, and later changes copy
+ * only the nodes on their path rather than the whole tree.
  * @author   Kyle McGlynn
  * @Author   Ajinkya Kolhe
  *
@@ -13,315 +55,2535 @@ import java.util.TreeSet;
  *                 type E where type E is any class that
  *                 implements the Comparable interface.   
  */
-@SuppressWarnings("serial")
 public class StudentTreeSet < E extends Comparable < E > > 
                                 extends TreeSet < E > {
 	
-	// The top of the tree
-	private Node<E> root;
+	private static final long serialVersionUID = 1L;
+	
+	// The first four bytes of a stream written by writeTo()
+	private static final int MAGIC = 0x53545345;
+	
+	// The number of bytes writeTo() and readFrom()
+	// move to or from the stream at a time
+	private static final int BLOCK_BYTES = 65536;
+	
+	// The number of characters writeTo() collects
+	// before handing them to an Appendable
+	private static final int TEXT_CHARS = 8192;
+	
+	// The number of searches and changes after which
+	// an adaptive balance policy is asked again for
+	// the range factor
+	private static final int ADAPT_INTERVAL = 4096;
+	
+	// The top of the tree. The nodes are not serialized
+	// themselves; writeObject() writes the elements in
+	// order and readObject() links them up again.
+	transient Node<E> root;
 	
 	// The number of elements in the tree
-	private int size = 0;
+	private transient int size = 0;
+	
+	// The largest number of elements the tree has held
+	// since the whole tree was last rebuilt
+	private transient int maxSize = 0;
 	
 	// Current height of the tree
-	private int currentHeight = 0;
+	transient int currentHeight = 0;
+	
+	// Height of a perfectly balanced tree holding
+	// the elements of this tree, at least the minimum
+	// height of the balance policy
+	private transient int maxHeight = 3;
+	
+	// Decides how far out of balance the tree may grow
+	private BalancePolicy policy = BalancePolicy.DEFAULT;
+	
+	// Factor used to determine how far past maxHeight
+	// an element may be placed before the tree is
+	// rebalanced. It only changes if the policy is adaptive.
+	private transient double rangeFactor = 1.75;
+	
+	// True if the policy is adaptive, in which case
+	// the searches and changes of the tree are counted.
+	// Both counts are halved each time the policy is
+	// asked for a new range factor, so older operations
+	// count for less.
+	private transient boolean adaptive = false;
+	private transient long reads = 0;
+	private transient long writes = 0;
+	
+	// True if only the unbalanced part of the tree
+	// is rebuilt, false if the whole tree is rebuilt
+	private boolean partialRebuild = false;
+	
+	// The order of the elements, or null for their
+	// natural ordering
+	private Comparator<? super E> comparator;
+	
+	// If not null, the elements are ordered by this long
+	// key first, and by tieBreak when their keys are equal.
+	// Each node then holds the key of its element, so most
+	// comparisons compare two longs. A tree with a sort key
+	// cannot be serialized.
+	private transient ToLongFunction<? super E> sortKey;
+	
+	// The order of elements with equal sort keys, or
+	// null for their natural ordering
+	private transient Comparator<? super E> tieBreak;
+	
+	// The next node of the flattened list
+	// that the rebuild method links into the tree
+	private transient Node<E> rebuildList;
+	
+	// The number of modifications made to the structure
+	// of the tree. Iterators compare it with the count at
+	// their creation to detect concurrent modifications.
+	transient int modCount = 0;
+	
+	// The current epoch of the tree. Every snapshot starts
+	// a new one, so the nodes of older epochs may be shared
+	// with a snapshot and must be copied before a change.
+	private transient int epoch = 0;
+	
+	// The nodes from the root down to the node being added
+	// or removed. Nodes have no parent links, because a node
+	// shared with a snapshot has a parent in every version
+	// of the tree that holds it.
+	private transient Node<E>[] path = Node.array( 16 );
+	
+	// True if add() and contains() start from the finger,
+	// the path to the node the last of them reached, rather
+	// than from the root
+	private boolean finger = false;
+	
+	// True if removed and cleared nodes are kept in the
+	// pool and used again by later adds
+	private boolean pooled = false;
+	
+	// The nodes kept for reuse, linked through their right
+	// child, and how many there are. A pooled node holds no
+	// element and is never shared with a snapshot.
+	private transient Node<E> free;
+	private transient int freeCount = 0;
+	
+	// The number of nodes on the path that make up the
+	// finger. It is only used while fingerModCount matches
+	// modCount, and it is 0 when there is no finger.
+	private transient int fingerDepth = 0;
+	
+	// The modification count of the tree when the finger
+	// was recorded
+	private transient int fingerModCount = -1;
+	
+	// For every node of the finger, the depths of the nearest
+	// ancestors with a smaller and a larger element, or -1.
+	// The elements of the subtree of the node lie between them.
+	private transient int[] fingerLow;
+	private transient int[] fingerHigh;
+	
+	// The number of searches that started from the finger,
+	// how many of them started below the root, and the number
+	// of comparisons they made
+	private transient long fingerSearches = 0;
+	private transient long fingerHits = 0;
+	private transient long fingerSteps = 0;
+	
+	// The statistics of the tree, or null if
+	// they are not being kept
+	transient TreeStats stats;
+	
+	/**
+	 * The constructor. It creates an empty tree
+	 * that rebuilds all of its elements whenever 
+	 * it becomes too high.
+	 */
+	public StudentTreeSet() {
+		this( false );
+	}
+	
+	/**
+	 * The constructor. It creates an empty tree. If
+	 * partialRebuild is true, the tree only rebuilds the
+	 * subtree rooted at the lowest unbalanced ancestor 
+	 * of an element that was placed too deep, in the 
+	 * manner of a scapegoat tree. This keeps every
+	 * rebuild small, and adding takes amortized 
+	 * O( log n ) time.
+	 * @param    partialRebuild   true to rebuild only the
+	 *                            unbalanced subtree, false
+	 *                            to rebuild the whole tree
+	 */
+	public StudentTreeSet( boolean partialRebuild ) {
+		this( partialRebuild, false );
+	}
+	
+	/**
+	 * The constructor. It creates an empty tree. If
+	 * finger is true, add() and contains() remember the
+	 * path to the last node they reached and start the next
+	 * search from there. A search for an element close to
+	 * the last one, in order, only climbs as far as the
+	 * lowest ancestor whose subtree can hold it, so it takes
+	 * O( log d ) time when d elements lie between them. That
+	 * suits clustered keys, such as timestamps added nearly
+	 * in order. Because contains() changes the finger, a tree
+	 * in finger mode must not be read by several threads.
+	 * @param    partialRebuild   true to rebuild only the
+	 *                            unbalanced subtree, false
+	 *                            to rebuild the whole tree
+	 * @param    finger           true to search from the last
+	 *                            node reached, false to search
+	 *                            from the root
+	 */
+	public StudentTreeSet( boolean partialRebuild, boolean finger ) {
+		this( partialRebuild, finger, BalancePolicy.DEFAULT );
+	}
+	
+	/**
+	 * The constructor. It creates an empty tree whose
+	 * balance is kept by the given policy. BalancePolicy.EAGER
+	 * keeps the tree low for fast searches, BalancePolicy.LAZY
+	 * rebuilds less often for fast adding, and
+	 * BalancePolicy.ADAPTIVE moves between the two with the
+	 * share of changes among the operations.
+	 * @param    partialRebuild   true to rebuild only the
+	 *                            unbalanced subtree, false
+	 *                            to rebuild the whole tree
+	 * @param    finger           true to search from the last
+	 *                            node reached, false to search
+	 *                            from the root
+	 * @param    policy           the balance policy
+	 */
+	public StudentTreeSet( boolean partialRebuild, boolean finger, BalancePolicy policy ) {
+		this.partialRebuild = partialRebuild;
+		this.finger = finger;
+		usePolicy( Objects.requireNonNull( policy ) );
+	}
+	
+	/**
+	 * The constructor. It creates an empty tree that orders
+	 * its elements with a comparator rather than by their
+	 * natural ordering, as TreeSet does.
+	 * @param    comparator   the order of the elements, or
+	 *                        null for the natural ordering
+	 */
+	public StudentTreeSet( Comparator<? super E> comparator ) {
+		this( false );
+		this.comparator = comparator;
+	}
+	
+	/**
+	 * The constructor. It creates an empty tree that orders
+	 * its elements with a comparator and keeps its balance
+	 * with the given policy.
+	 * @param    comparator   the order of the elements, or
+	 *                        null for the natural ordering
+	 * @param    policy       the balance policy
+	 */
+	public StudentTreeSet( Comparator<? super E> comparator, BalancePolicy policy ) {
+		this( false, false, policy );
+		this.comparator = comparator;
+	}
+	
+	/**
+	 * This method makes a policy the balance policy
+	 * of the tree and starts from its range factor.
+	 * @param    policy   the balance policy
+	 */
+	private void usePolicy( BalancePolicy policy ) {
+		this.policy = policy;
+		this.rangeFactor = policy.rangeFactor();
+		this.adaptive = policy.adaptive();
+		this.maxHeight = Math.max( maxHeight, policy.minHeight() );
+		reads = 0;
+		writes = 0;
+	}
+	
+	/**
+	 * This method asks an adaptive policy for the range
+	 * factor that suits the recent searches and changes. A
+	 * tighter bound does not rebuild anything at once: the
+	 * next add placed deeper than the new bound rebuilds the
+	 * unbalanced part of the tree, as any other add does.
+	 * Rebuilding the whole tree here would cost O( n ) each
+	 * time the bound tightens, even when partial rebuilds
+	 * have already kept the tree low. It is only called while
+	 * the tree is being changed, so a search never moves a node.
+	 */
+	private void adapt() {
+		double factor = policy.rangeFactor( reads, writes );
+		reads >>= 1;
+		writes >>= 1;
+		rangeFactor = factor;
+	}
+	
+	/**
+	 * Returns the balance policy of the tree.
+	 * @return   BalancePolicy   the balance policy
+	 */
+	public BalancePolicy balancePolicy() {
+		return policy;
+	}
+	
+	/**
+	 * Returns the range factor the tree is balanced by
+	 * now. It only changes if the policy is adaptive.
+	 * @return   double   the range factor
+	 */
+	public double rangeFactor() {
+		return rangeFactor;
+	}
 	
-	// Max height of the tree, initialized to 3
-	private int maxHeight = 3;
+	/**
+	 * The constructor. It creates an empty tree that orders
+	 * its elements by a long key taken from each of them, and
+	 * those with equal keys by the tie breaking comparator.
+	 * The key is computed once, when an element is added, and
+	 * kept in its node. A search computes the key it looks for
+	 * once as well, so it compares two longs at most nodes and
+	 * only calls the comparator when the keys are equal. For
+	 * strings, a key holding their first few characters sorts
+	 * them correctly as long as the comparator breaks the ties.
+	 * Such a tree cannot be serialized, since the key function
+	 * is usually a lambda; writeTo() with a codec stores its
+	 * elements instead.
+	 * @param    sortKey    the key that orders the elements
+	 * @param    tieBreak   the order of elements with equal
+	 *                      keys, or null for the natural ordering
+	 */
+	public StudentTreeSet( ToLongFunction<? super E> sortKey, Comparator<? super E> tieBreak ) {
+		this( false );
+		this.sortKey = sortKey;
+		this.tieBreak = tieBreak;
+		this.comparator = Comparator.<E>comparingLong( sortKey ).thenComparing(
+				tieBreak != null ? tieBreak : Comparator.<E>naturalOrder() );
+	}
 	
-	// Constant factor used to determine when to 
-	// increase the maximum height
-	private double rangeFactor = 1.75;
+	/**
+	 * This method returns a sort key for a string made of
+	 * its first eight characters, one byte each, so that a
+	 * string with a smaller key always comes first in the
+	 * natural ordering of strings. A character above 0xFF
+	 * counts as 0xFF and ends the key, since the characters
+	 * after it can no longer be ordered by their bytes alone.
+	 * Strings with equal keys must be told apart by the tie
+	 * breaking comparator, or their natural ordering.
+	 * @param    string   the string
+	 * @return   long     its sort key
+	 */
+	public static long prefixKey( String string ) {
+		long key = 0;
+		int length = Math.min( string.length(), 8 );
+		int index = 0;
+		while( index < length ) {
+			int c = Math.min( string.charAt( index++ ), 0xFF );
+			key = key << 8 | c;
+			if( c == 0xFF ) {
+				break;
+			}
+		}
+		key <<= 8 * ( 8 - index );
 		
-	// Used for the inOrer method
-	private int pointer = 0;
+		// Flip the sign bit, so the signed order of
+		// the keys is the unsigned order of the bytes
+		return key ^ Long.MIN_VALUE;
+	}
+	
+	/**
+	 * This method starts keeping statistics of the tree,
+	 * or returns the ones already being kept.
+	 * @return   TreeStats   the statistics of the tree
+	 */
+	public TreeStats enableStats() {
+		if( stats == null ) {
+			stats = new TreeStats();
+		}
+		return stats;
+	}
+	
+	/**
+	 * This method stops keeping statistics of the tree.
+	 */
+	public void disableStats() {
+		stats = null;
+	}
+	
+	/**
+	 * This method makes the tree keep the nodes of removed
+	 * elements in a pool, and clear() put every node in it,
+	 * rather than leaving them to the garbage collector. Later
+	 * adds take their nodes from the pool and only create a
+	 * node when it is empty, so a tree that is cleared and
+	 * filled again to about the same size creates no garbage.
+	 * Nodes shared with a snapshot are never pooled. The pool
+	 * starts with the given number of nodes, so even the first
+	 * fill does not allocate them one by one.
+	 * @param    capacity   the number of nodes to create now
+	 */
+	public void enablePool( int capacity ) {
+		pooled = true;
+		while( freeCount < capacity ) {
+			Node<E> node = sortKey == null ? new Node<E>( null ) :
+					new KeyedNode<E>( null, 0 );
+			node.right = free;
+			free = node;
+			freeCount++;
+		}
+	}
 	
-	// An array of iterators over an instance of this class
-	private Object[] iterators = new Object[5];
+	/**
+	 * This method stops keeping nodes in a pool and
+	 * lets go of the nodes already in it.
+	 */
+	public void disablePool() {
+		pooled = false;
+		free = null;
+		freeCount = 0;
+	}
 	
-	// Used to maintain the array of iterators
-	private int iterPointer = 0;
+	/**
+	 * Returns the number of nodes waiting in the pool.
+	 * @return   int   the number of pooled nodes
+	 */
+	public int poolSize() {
+		return freeCount;
+	}
 	
 	/**
-	 * This method recursively determines a node's position
-	 * in the binary tree by comparing its data to that of
-	 * the current node. The method terminates once the node 
-	 * is placed as a leaf.
-	 * 
-	 * Because this tree has the qualities of a set, if we
-	 * find a node with the same data already in the tree,
-	 * then this method returns false.
+	 * Returns the statistics of the tree.
+	 * @return   TreeStats   the statistics, or null if
+	 *                       they are not being kept
+	 */
+	public TreeStats stats() {
+		return stats;
+	}
+	
+	/**
+	 * Returns an upper bound on the height of the tree,
+	 * which is the depth of its deepest node. It is the
+	 * deepest depth any node has been placed at since the
+	 * whole tree was last rebuilt, so it is exact after a
+	 * whole rebuild, but removals and partial rebuilds that
+	 * make the tree lower do not bring it down.
+	 * @return   int   at least the height of the tree
+	 */
+	public int height() {
+		return currentHeight;
+	}
+	
+	/**
+	 * Returns the height of a perfectly balanced tree
+	 * holding as many elements as the tree has held since
+	 * it was last rebuilt. A node placed deeper than this
+	 * times the range factor causes a rebuild.
+	 * @return   int   the balanced height
+	 */
+	public int maxHeight() {
+		return maxHeight;
+	}
+	
+	/**
+	 * Returns the order of the elements, or null
+	 * if they are in their natural ordering.
+	 * @return   Comparator<? super E>   the order of the elements
+	 */
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+	
+	/**
+	 * The constructor. It creates a tree holding the 
+	 * elements of a collection. The elements are sorted
+	 * if needed and linked into a perfectly balanced
+	 * tree in one pass, as addAll() does.
+	 * @param    collection   the elements of the tree
+	 */
+	public StudentTreeSet( Collection<? extends E> collection ) {
+		this( false );
+		addAll( collection );
+	}
+	
+	/**
+	 * The constructor. It creates a tree holding the 
+	 * elements of a sorted set, in the same order. Its
+	 * elements are linked into a perfectly balanced tree
+	 * in O( n ) time without being compared.
+	 * @param    sorted   the elements of the tree
+	 */
+	public StudentTreeSet( SortedSet<E> sorted ) {
+		this( false );
+		comparator = sorted.comparator();
+		addAll( sorted );
+	}
+	
+	/**
+	 * This method creates a tree holding the elements of
+	 * an array in ascending order. It creates one node per
+	 * element and links them into a perfectly balanced tree 
+	 * in O( n ) time. Equal neighbours are only added once.
+	 * @param    sorted   the elements in ascending order
+	 * @return   StudentTreeSet<E>   the tree
+	 * @throws   NullPointerException   if an element is null
+	 * @throws   IllegalArgumentException   if the elements
+	 *                                      are not in order
+	 */
+	public static < E extends Comparable < E > > StudentTreeSet<E> fromSorted( E[] sorted ) {
+		StudentTreeSet<E> tree = new StudentTreeSet<E>();
+		for( E e : sorted ) {
+			if( e == null ) {
+				throw new NullPointerException( "Cannot add a null value." );
+			}
+		}
+		tree.checkOrder( sorted );
+		tree.merge( sorted );
+		return tree;
+	}
+	
+	/**
+	 * This method rebuilds a subtree in O(n) time.
+	 * It does so by relinking the existing nodes of
+	 * the subtree into a list in order, and then linking
+	 * that list back into a perfectly balanced subtree
+	 * that takes the place of the old one. No nodes are
+	 * allocated and no elements are compared, because
+	 * the list is already in order. Nodes shared with
+	 * a snapshot are copied as they are relinked.
+	 * @param    node     the root of the subtree to rebuild
+	 * @param    count    the number of nodes in the subtree
+	 * @param    parent   the node the subtree hangs from,
+	 *                    or null if it is the whole tree
+	 */
+	private void rebuild( Node<E> node, int count, Node<E> parent ) {
+		RebuildEvent event = null;
+		long start = 0;
+		if( stats != null ) {
+			event = new RebuildEvent();
+			event.begin();
+			start = System.nanoTime();
+		}
+		
+		// Turn the subtree into an in order list
+		// of nodes linked through their right child
+		rebuildList = flatten( node );
+		
+		// Link the list back into a balanced subtree
+		Node<E> balanced = build( count );
+		
+		// Put the balanced subtree where the old one was
+		if( parent == null ) {
+			root = balanced;
+			resetHeights();
+		}
+		else if( parent.left == node ) {
+			parent.left = balanced;
+		}
+		else{
+			parent.right = balanced;
+		}
+		
+		// Record how long the rebuild took
+		if( stats != null ) {
+			stats.rebuilt( count, System.nanoTime() - start, parent == null );
+			event.end();
+			if( event.shouldCommit() ) {
+				event.nodes = count;
+				event.whole = parent == null;
+				event.size = size;
+				event.commit();
+			}
+		}
+	}
+	
+	/**
+	 * This method resets the heights of the tree after
+	 * the whole tree has been rebuilt into a perfectly
+	 * balanced one.
+	 */
+	private void resetHeights() {
+		
+		// A perfectly balanced tree of n elements
+		// has a height of floor( log2( n ) )
+		currentHeight = size > 0 ? 31 - Integer.numberOfLeadingZeros( size ) : 0;
+		
+		// Start counting the largest size again, and
+		// shrink maxHeight if elements were removed
+		maxSize = size;
+		maxHeight = policy.minHeight();
+		while( size > ( 1L << maxHeight ) - 1 ) {
+			maxHeight++;
+		}
+	}
+	
+	/**
+	 * This method finds the scapegoat of a node that
+	 * was placed too deep and rebuilds the subtree 
+	 * rooted at it. The scapegoat is the lowest ancestor
+	 * with a child on the insert path holding more than
+	 * alpha times the elements of the ancestor, where alpha
+	 * is chosen so that a tree in which no node is 
+	 * unbalanced is at most rangeFactor * log2( n ) high.
+	 * @param    node    the node that was placed too deep
+	 * @param    depth   the depth of the node, whose
+	 *                   ancestors are at the front of path
+	 * @return   int     the depth of the scapegoat, which is
+	 *                   the number of nodes at the front of
+	 *                   path that were left in place
+	 */
+	private int rebalance( Node<E> node, int depth ) {
+		
+		// The largest share of an ancestor's elements
+		// that one of its children may hold
+		double alpha = alpha();
+		
+		// Walk back up the insert path, using the 
+		// size of the subtree below each ancestor
+		Node<E> child = node;
+		for( int index = depth - 1; index >= 0; index-- ) {
+			Node<E> ancestor = path[index];
+			
+			// If the child is too heavy, the ancestor
+			// is the scapegoat
+			if( child.size > alpha * ancestor.size ) {
+				rebuild( ancestor, ancestor.size, index > 0 ? path[index - 1] : null );
+				return index;
+			}
+			child = ancestor;
+		}
+		
+		// A node placed too deep always has a scapegoat,
+		// but rebuild the whole tree if none was found
+		rebuild( root, size, null );
+		return 0;
+	}
+	
+	/**
+	 * This method records a node at the given depth of
+	 * the path, doubling the path if it is full.
+	 * @param    depth   the depth of the node
+	 * @param    node    the node
+	 */
+	private void record( int depth, Node<E> node ) {
+		if( depth == path.length ) {
+			path = Arrays.copyOf( path, depth * 2 );
+		}
+		path[depth] = node;
+	}
+	
+	/**
+	 * This method creates a node of the current epoch.
+	 * @param    e         the element of the node
+	 * @return   Node<E>   the new node
+	 */
+	private Node<E> newNode( E e ) {
+		Node<E> node = free;
+		
+		// Take a node from the pool if there is one
+		if( node != null ) {
+			free = node.right;
+			freeCount--;
+			node.right = null;
+			node.data = e;
+			node.size = 1;
+			if( sortKey != null ) {
+				( ( KeyedNode<E> ) node ).key = sortKey.applyAsLong( e );
+			}
+		}
+		else{
+			node = sortKey == null ? new Node<E>( e ) :
+					new KeyedNode<E>( e, sortKey.applyAsLong( e ) );
+		}
+		node.epoch = epoch;
+		return node;
+	}
+	
+	/**
+	 * This method puts a node that was unlinked from the
+	 * tree into the pool, if the tree is pooled and the node
+	 * is not shared with a snapshot. Its element is let go.
+	 * @param    node   the node
+	 */
+	private void recycle( Node<E> node ) {
+		if( pooled && node.epoch == epoch ) {
+			node.data = null;
+			node.left = null;
+			node.right = free;
+			free = node;
+			freeCount++;
+		}
+	}
+	
+	/**
+	 * This method puts every node of a subtree into the
+	 * pool in O( n ) time without recursion. It rotates the
+	 * left child of the current node up until the current
+	 * node has none, and then pools it and moves on to its
+	 * right child. A subtree shared with a snapshot holds
+	 * only shared nodes, so it is cut off and left alone.
+	 * @param    node   the root of the subtree
+	 */
+	private void recycleAll( Node<E> node ) {
+		while( node != null && node.epoch == epoch ) {
+			Node<E> child = node.left;
+			if( child != null && child.epoch != epoch ) {
+				node.left = null;
+			}
+			else if( child != null ) {
+				node.left = child.right;
+				child.right = node;
+				node = child;
+			}
+			else{
+				Node<E> next = node.right;
+				recycle( node );
+				node = next;
+			}
+		}
+	}
+	
+	/**
+	 * This method returns a node that may be changed.
+	 * A node of the current epoch is returned as it is, 
+	 * and a node of an older one, which may be shared
+	 * with a snapshot, is copied.
+	 * @param    node      the node
+	 * @return   Node<E>   the node, or a copy of it
+	 */
+	private Node<E> own( Node<E> node ) {
+		if( node.epoch == epoch ) {
+			return node;
+		}
+		Node<E> copy = newNode( node.data );
+		copy.left = node.left;
+		copy.right = node.right;
+		copy.size = node.size;
+		return copy;
+	}
+	
+	/**
+	 * This method makes every node on the first depth
+	 * entries of the path one that may be changed. A node
+	 * of an older epoch is replaced by a copy of the current
+	 * one, both in the path and in the node above it, so a
+	 * snapshot never sees the change. The tree cannot tell
+	 * whether a snapshot is still alive, so this happens even
+	 * after every snapshot is gone, but each node is copied
+	 * at most once per epoch.
+	 * @param    depth   the number of nodes on the path
+	 */
+	private void ownPath( int depth ) {
+		for( int index = 0; index < depth; index++ ) {
+			Node<E> node = path[index];
+			if( node.epoch != epoch ) {
+				Node<E> copy = own( node );
+				path[index] = copy;
+				if( index == 0 ) {
+					root = copy;
+				}
+				else if( path[index - 1].left == node ) {
+					path[index - 1].left = copy;
+				}
+				else{
+					path[index - 1].right = copy;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This method returns the largest share of a node's
+	 * elements that one of its children may hold before
+	 * the node counts as unbalanced. It is chosen so that 
+	 * a tree without unbalanced nodes is no higher than
+	 * rangeFactor * log2( n ).
+	 * @return   double   the share, between 0.5 and 1
+	 */
+	private double alpha() {
+		return Math.pow( 0.5, 1.0 / rangeFactor );
+	}
+	
+	/**
+	 * This method turns a tree into a list of its
+	 * nodes in order, linked through their right
+	 * child. It repeatedly rotates the right child 
+	 * of the current node up until the current node 
+	 * holds the largest remaining element, and then
+	 * moves that node to the front of the list. The
+	 * list never holds a node shared with a snapshot.
+	 * @param    node      the root of the tree to flatten
+	 * @return   Node<E>   the first node of the list
+	 */
+	private Node<E> flatten( Node<E> node ) {
+		
+		// The front of the list
+		Node<E> head = null;
+		
+		while( node != null ) {
+			
+			// A node shared with a snapshot
+			// is copied before it is relinked
+			node = own( node );
+			
+			// If the current node has a right child,
+			// rotate it up to become the current node
+			if( node.right != null ) {
+				Node<E> child = own( node.right );
+				node.right = child.left;
+				child.left = node;
+				node = child;
+			}
+			
+			// If there is no right child, the current node
+			// holds the largest remaining element, so it
+			// goes to the front of the list
+			else{
+				Node<E> next = node.left;
+				node.left = null;
+				node.right = head;
+				head = node;
+				node = next;
+			}
+		}
+		return head;
+	}
+	
+	/**
+	 * This method recursively links the next nodes of
+	 * the flattened list into a balanced tree. The middle
+	 * node becomes the root of the tree, and the nodes 
+	 * before and after it become its left and right subtrees.
+	 * @param    count     how many nodes of the list 
+	 *                     to link into this tree
+	 * @return   Node<E>   the root of the balanced tree
+	 */
+	private Node<E> build( int count ) {
+		
+		// An empty segment becomes an empty subtree
+		if( count == 0 ) {
+			return null;
+		}
+		
+		// The first half of the segment becomes 
+		// the left subtree
+		int middle = count / 2;
+		Node<E> left = build( middle );
+		
+		// The next node of the list becomes the root
+		Node<E> node = rebuildList;
+		rebuildList = node.right;
+		
+		// The rest of the segment becomes the right subtree
+		Node<E> right = build( count - middle - 1 );
+		
+		// Link the subtrees to the root
+		node.left = left;
+		node.right = right;
+		node.size = count;
+		return node;
+	}
+	
+	/**
+	 * This method adds an element of type E
+	 * to the tree. If the element already 
+	 * exists in this tree, then this method
+	 * return false.
 	 * 
-	 * @param    ancestor     the current node that we are
-	 *                        comparing to the node whose 
-	 *                        position we want to find
-	 * @param    descendant   the node whose position we are
-	 *                        trying to determine
-	 * @param    depth        how far from the root at which
-	 *                        the node is place
-	 * @return   boolean      true if the node was successfully
-	 *                        added, false if a node with the
-	 *                        same data is already in the tree 
-	 */
-	private boolean bubbleDown( Node<E> ancestor, Node<E> descendant, int depth ) {
-		
-		// If the depth exceeds the current height,
-		// then update the current height
-		if( ++depth > currentHeight ) {
-			currentHeight = depth;
-		}
-		
-		// Compare the data of the node against the current node
-		int comparison = descendant.data.compareTo( ancestor.data );
-		
-		// If the data in the two nodes is the same,
-		// return false
-		if( comparison == 0 ) {
-			return false;
-		}		
+	 * The element is bubbled down from the root in
+	 * a loop, comparing it to the data of each node
+	 * on the way, until it reaches an empty child 
+	 * position. A node is only created once such a 
+	 * position has been found. The nodes on the way
+	 * are recorded, so their sizes can be updated
+	 * and a scapegoat found without parent links.
+	 * @param    e         an element of type E to 
+	 *                     be added to the tree
+	 * @return   boolean   true if this element could
+	 *                     be added, false otherwise
+	 * @throws   NullPointerException   if the element is null
+	 */
+	public boolean add( E e ) {
 		
-		// If the data in the node is less than the data
-		// in the current node
-		else if(  comparison < 0 ){
+		// So long as the element isn't null
+		if( e != null ) {
+			
+			// The node that will hold the element
+			Node<E> node;
 			
-			// If the left child position of the current node
-			// is empty, put the node there
-			if( ancestor.left == null ) {
-				ancestor.left = descendant;
-				descendant.parent = ancestor;
-				return true;
+			// The depth at which the node is placed
+			int depth = 0;
+			
+			// If the root is empty, there is
+			// no finger to search from either
+			if( root == null ) {
+				node = newNode( e );
+				root = node;
+				fingerDepth = 0;
 			}
 			
-			// If the left child position is occupied, make
-			// a recursive call on the left child
+			// If the root is not empty, then
+			// bubble down
+			else{
+				int comparison;
+				
+				// In finger mode, search from the last node
+				// reached. The path it leaves ends at the
+				// node the element goes under.
+				if( finger ) {
+					comparison = fingerSearch( e );
+					if( comparison == 0 ) {
+						return false;
+					}
+					depth = fingerDepth;
+				}
+				else{
+					Node<E> ancestor = root;
+					long key = keyOf( e );
+					while( true ) {
+						
+						// Compare the element against the current node
+						comparison = compare( e, key, ancestor );
+						
+						// If the element is already in the tree,
+						// it could not be added, so return false
+						if( comparison == 0 ) {
+							if( stats != null ) {
+								stats.searched( depth + 1 );
+							}
+							return false;
+						}
+						record( depth++, ancestor );
+						
+						// Move to the child on the element's side,
+						// stopping if that position is empty
+						Node<E> child = comparison < 0 ? ancestor.left : ancestor.right;
+						if( child == null ) {
+							break;
+						}
+						ancestor = child;
+					}
+					if( stats != null ) {
+						stats.searched( depth );
+					}
+				}
+				
+				// Copy the nodes on the path that are
+				// shared with a snapshot
+				ownPath( depth );
+				Node<E> ancestor = path[depth - 1];
+				
+				// Put a new node in the empty position
+				node = newNode( e );
+				if( comparison < 0 ) {
+					ancestor.left = node;
+				}
+				else{
+					ancestor.right = node;
+				}
+				
+				// If the depth exceeds the current height,
+				// then update the current height
+				if( depth > currentHeight ) {
+					currentHeight = depth;
+				}
+				
+				// Every ancestor of the node now
+				// has one more node in its subtree
+				for( int index = 0; index < depth; index++ ) {
+					path[index].size++;
+				}
+				
+				// The new node becomes the finger
+				if( finger ) {
+					record( depth, node );
+					bound( depth, comparison > 0 );
+					fingerDepth = depth + 1;
+				}
+			}
+			
+			// Record that a modification has
+			// been made to the structure
+			modCount++;
+			if( stats != null ) {
+				stats.inserted( depth );
+			}
+			
+			// Increment the size of the tree
+			size++;
+			if( size > maxSize ) {
+				maxSize = size;
+			}
+			
+			// If the number of elements exceeds the 
+			// amount that would be present in a full tree
+			// of height equal to maxHeight, than increase
+			// maxHeight by one.
+			if( size > ( 1L << maxHeight ) - 1 ) {
+				maxHeight++;
+			}
+			
+			// If the node was placed deeper than the maximum
+			// height times the range factor, rebuild either
+			// the unbalanced subtree or the whole tree.
+			if( depth >= maxHeight * rangeFactor ) {
+				
+				// Only the nodes above the rebuilt
+				// subtree stay on the finger
+				if( partialRebuild ) {
+					fingerDepth = rebalance( node, depth );
+				}
+				else{
+					rebuild( root, size, null );
+					fingerDepth = 0;
+				}
+			}
+			
+			// Let an adaptive policy see the change
+			if( adaptive && ++writes + reads >= ADAPT_INTERVAL ) {
+				adapt();
+			}
+			fingerModCount = modCount;
+			return true;
+		}
+		
+		// If the element to be added is null
+		else{
+			throw new NullPointerException( "Cannot add a null value." );
+		}
+	}
+	
+	/**
+	 * This method adds every element of a collection to 
+	 * the tree. The elements are put in order first: a 
+	 * sorted set with the natural ordering already is, any
+	 * other collection is checked in one pass and only sorted
+	 * if it is out of order. If there are few of them compared
+	 * to the size of the tree they are added one at a time,
+	 * otherwise they are merged with the elements of the tree
+	 * in linear time and the tree is rebuilt from the result.
+	 * @param    collection   the elements to add
+	 * @return   boolean      true if any element was added
+	 * @throws   NullPointerException   if an element is null
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean addAll( Collection<? extends E> collection ) {
+		Object[] elements = collection.toArray();
+		
+		// If the collection is not known to be sorted,
+		// check it, and sort it if it is out of order
+		if( !( collection instanceof SortedSet &&
+				Objects.equals( ( ( SortedSet<?> ) collection ).comparator(), comparator ) ) ) {
+			boolean sorted = true;
+			for( int index = 0; index < elements.length; index++ ) {
+				if( elements[index] == null ) {
+					throw new NullPointerException( "Cannot add a null value." );
+				}
+				if( sorted && index > 0 && 
+						compare( elements[index - 1], ( E ) elements[index] ) > 0 ) {
+					sorted = false;
+				}
+			}
+			if( !sorted ) {
+				Arrays.sort( elements, ( Comparator<Object> ) comparator );
+			}
+		}
+		return addSorted( elements );
+	}
+	
+	/**
+	 * This method adds the elements of an array in ascending
+	 * order to the tree, without sorting them. The order is
+	 * checked first, so the tree is left as it was if it is
+	 * wrong. The elements are merged with the tree in linear
+	 * time, as addAll() does, or added one at a time if there
+	 * are few.
+	 * @param    sorted    the elements in ascending order
+	 * @return   boolean   true if any element was added
+	 * @throws   NullPointerException   if an element is null
+	 * @throws   IllegalArgumentException   if the elements
+	 *                                      are not in order
+	 */
+	public boolean addAllSorted( E[] sorted ) {
+		for( E e : sorted ) {
+			if( e == null ) {
+				throw new NullPointerException( "Cannot add a null value." );
+			}
+		}
+		checkOrder( sorted );
+		return addSorted( sorted );
+	}
+	
+	/**
+	 * This method adds elements in ascending order to the
+	 * tree. If there are few of them compared to the size of
+	 * the tree they are added one at a time, which costs less
+	 * than a merge, otherwise they are merged with the tree.
+	 * @param    elements   the elements in ascending order
+	 * @return   boolean    true if any element was added
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean addSorted( Object[] elements ) {
+		if( size > 0 && elements.length < size / ( 32 - Integer.numberOfLeadingZeros( size ) ) ) {
+			boolean changed = false;
+			for( Object element : elements ) {
+				changed |= add( ( E ) element );
+			}
+			return changed;
+		}
+		int oldSize = size;
+		merge( elements );
+		return size > oldSize;
+	}
+	
+	/**
+	 * This method looks up many objects at once. The objects
+	 * must be in ascending order, and the tree is walked once
+	 * for all of them: at each node the objects are split into
+	 * those below its element, which go on to the left subtree,
+	 * and those above, which go on to the right. Only the nodes
+	 * on the way to some object are visited, and each of them
+	 * splits its objects with a binary search.
+	 * @param    sorted    the objects in ascending order
+	 * @param    found     the bit of the index of every object
+	 *                     in the tree is set, and the rest of the
+	 *                     bits up to sorted.length are cleared
+	 * @return   boolean   true if every object is in the tree
+	 * @throws   IllegalArgumentException   if the objects
+	 *                                      are not in order
+	 */
+	public boolean containsAll( Object[] sorted, BitSet found ) {
+		checkOrder( sorted );
+		found.clear( 0, sorted.length );
+		probe( root, sorted, 0, sorted.length, found );
+		return found.nextClearBit( 0 ) >= sorted.length;
+	}
+	
+	/**
+	 * This method recursively looks up the objects of a
+	 * range of the array in a subtree. Every object in the
+	 * range lies between the bounds of the subtree.
+	 * @param    node     the root of the subtree
+	 * @param    sorted   the objects in ascending order
+	 * @param    from     the index of the first object
+	 * @param    to       the index after the last object
+	 * @param    found    the bits of the objects found
+	 */
+	private void probe( Node<E> node, Object[] sorted, int from, int to, BitSet found ) {
+		while( node != null && from < to ) {
+			
+			// A single object is looked up as
+			// contains() would look it up
+			if( to - from == 1 ) {
+				while( node != null ) {
+					int comparison = compare( sorted[from], node.data );
+					if( comparison == 0 ) {
+						found.set( from );
+						return;
+					}
+					node = comparison < 0 ? node.left : node.right;
+				}
+				return;
+			}
+			
+			// The objects below, equal to and above
+			// the element of the node
+			int equal = search( sorted, from, to, node.data );
+			int above = equal;
+			while( above < to && compare( sorted[above], node.data ) == 0 ) {
+				above++;
+			}
+			found.set( equal, above );
+			
+			// Look up the smaller objects on the left and
+			// go on with the larger ones on the right
+			probe( node.left, sorted, from, equal, found );
+			node = node.right;
+			from = above;
+		}
+	}
+	
+	/**
+	 * This method finds the first object of a range of a
+	 * sorted array that is not less than an element.
+	 * @param    sorted   the objects in ascending order
+	 * @param    from     the index of the first object
+	 * @param    to       the index after the last object
+	 * @param    e        the element to compare with
+	 * @return   int      the index of the object found,
+	 *                    or to if there is none
+	 */
+	private int search( Object[] sorted, int from, int to, E e ) {
+		while( from < to ) {
+			int middle = ( from + to ) >>> 1;
+			if( compare( sorted[middle], e ) < 0 ) {
+				from = middle + 1;
+			}
+			else{
+				to = middle;
+			}
+		}
+		return from;
+	}
+	
+	/**
+	 * This method checks that the objects of an
+	 * array are in ascending order.
+	 * @param    sorted   the objects
+	 * @throws   IllegalArgumentException   if they are not
+	 */
+	@SuppressWarnings("unchecked")
+	private void checkOrder( Object[] sorted ) {
+		for( int index = 1; index < sorted.length; index++ ) {
+			if( compare( sorted[index - 1], ( E ) sorted[index] ) > 0 ) {
+				throw new IllegalArgumentException( "Elements are not in order." );
+			}
+		}
+	}
+	
+	/**
+	 * This method removes every element of the tree that is
+	 * not among the given objects, which must be in ascending
+	 * order. The nodes of the tree are flattened into an in
+	 * order list and walked in step with the objects, the nodes
+	 * that match are linked into a new list, and that list is
+	 * linked into a perfectly balanced tree, all in O( n + k ).
+	 * @param    sorted    the objects to keep, in ascending order
+	 * @return   boolean   true if any element was removed
+	 * @throws   IllegalArgumentException   if the objects
+	 *                                      are not in order
+	 */
+	public boolean retainMatching( Object[] sorted ) {
+		checkOrder( sorted );
+		
+		// The front and back of the list of kept nodes
+		Node<E> head = null;
+		Node<E> tail = null;
+		int count = 0;
+		int index = 0;
+		
+		Node<E> node = flatten( root );
+		while( node != null ) {
+			Node<E> next = node.right;
+			
+			// Skip the objects smaller than the node,
+			// and keep the node if the next one matches
+			while( index < sorted.length && compare( sorted[index], node.data ) < 0 ) {
+				index++;
+			}
+			if( index < sorted.length && compare( sorted[index], node.data ) == 0 ) {
+				if( tail == null ) {
+					head = node;
+				}
+				else{
+					tail.right = node;
+				}
+				tail = node;
+				count++;
+			}
+			
+			// A node that is not kept may be pooled
+			else{
+				recycle( node );
+			}
+			node = next;
+		}
+		if( tail != null ) {
+			tail.right = null;
+		}
+		
+		// Record that a modification has
+		// been made to the structure
+		modCount++;
+		
+		// Link the kept nodes into a balanced tree,
+		// which leaves the finger behind
+		boolean changed = count < size;
+		size = count;
+		rebuildList = head;
+		root = build( count );
+		resetHeights();
+		fingerDepth = 0;
+		return changed;
+	}
+	
+	/**
+	 * This method merges the elements of an array, in 
+	 * ascending order, with the elements of the tree. The 
+	 * nodes of the tree are flattened into an in order list,
+	 * a node is created for each new element, and the merged
+	 * list is linked into a perfectly balanced tree. Elements 
+	 * equal to the one before them are skipped. The callers
+	 * check the order of the elements first, because once the
+	 * tree is flattened it can no longer be left as it was.
+	 * @param    elements   the elements in ascending order
+	 */
+	@SuppressWarnings("unchecked")
+	private void merge( Object[] elements ) {
+		if( elements.length == 0 ) {
+			return;
+		}
+		
+		// The nodes of the tree in order
+		Node<E> old = flatten( root );
+		
+		// The front and back of the merged list
+		Node<E> head = null;
+		Node<E> tail = null;
+		int count = 0;
+		int index = 0;
+		
+		while( old != null || index < elements.length ) {
+			Node<E> next;
+			
+			// Take the smaller of the next old node and
+			// the next element, or both if they are equal
+			int comparison = old == null ? -1 : index == elements.length ? 1 :
+				compare( elements[index], old.data );
+			if( comparison < 0 ) {
+				E e = ( E ) elements[index++];
+				
+				// Skip an element equal to the one before it
+				if( tail != null && compare( e, tail.data ) == 0 ) {
+					continue;
+				}
+				next = newNode( e );
+			}
+			else{
+				if( comparison == 0 ) {
+					index++;
+				}
+				next = old;
+				old = old.right;
+			}
+			
+			// Add the node to the back of the merged list
+			if( tail == null ) {
+				head = next;
+			}
+			else{
+				tail.right = next;
+			}
+			tail = next;
+			count++;
+		}
+		tail.right = null;
+		
+		// Record that a modification has
+		// been made to the structure
+		modCount++;
+		
+		// Link the merged list into a balanced tree,
+		// which leaves the finger behind
+		size = count;
+		rebuildList = head;
+		root = build( count );
+		resetHeights();
+		fingerDepth = 0;
+	}
+	
+	/**
+	 * This method clears the tree of all elements, 
+	 * and resets the size of the tree to zero. If the
+	 * tree is pooled, its nodes are put into the pool,
+	 * which takes O( n ) time.
+	 */
+    public void clear() {
+    	modCount++;
+    	if( pooled ) {
+    		recycleAll( root );
+    	}
+    	root = null;
+    	size = 0;
+    	maxSize = 0;
+    	currentHeight = 0;
+    	maxHeight = policy.minHeight();
+    	fingerDepth = 0;
+    }
+    
+    /**
+     * This method determines if an object exists in 
+     * the tree. It starts at the root and, in a loop,
+     * compares the object to the data of the current 
+     * node. If they are equal this method returns true,
+     * if not it moves to the left or right child of the
+     * current node. If we reach a null value, this method
+     * returns false.
+     * 
+     * @param    object    the object we are looking for
+     * @return   boolean   true the tree contains
+     *                     the given object, false
+     *                     otherwise
+     */
+    @SuppressWarnings("unchecked")
+	public boolean contains( Object object ) {
+		if( adaptive ) {
+			reads++;
+		}
+		if( finger ) {
+			return fingerSearch( object ) == 0;
+		}
+		
+		// Compute the sort key of the object once,
+		// rather than once per node
+		long key = keyOf( object );
+		Node<E> node = root;
+		int count = 0;
+		
+		// Until we reach a null value
+		while( node != null ) {
+			
+			// Compare the object to the data in the current node
+			int comparison = compare( object, key, node );
+			count++;
+			
+			// If the object and the data of the current
+			// node are equal, return true
+			if( comparison == 0 ) {
+				break;
+			}
+			
+			// Otherwise move to the left child if the object
+			// is smaller, or the right child if it is larger
+			node = comparison < 0 ? node.left : node.right;
+		}
+		if( stats != null ) {
+			stats.searched( count );
+		}
+		
+		// If we reach a null value, return false
+		return node != null;
+	}
+    
+    /**
+     * This method searches for an object from the finger.
+     * It climbs the recorded path to the lowest node whose
+     * subtree lies between elements that the object falls
+     * strictly between, jumping straight to the ancestor
+     * holding the bound the object is outside of, and walks
+     * down from there. The path to the last node reached
+     * becomes the new finger. If the finger is out of date,
+     * the search starts from the root.
+     * @param    object   the object we are looking for
+     * @return   int      0 if the object was found, otherwise
+     *                    a negative or positive number as it is
+     *                    less or greater than the element of the
+     *                    last node reached, which is the node
+     *                    it would go under
+     */
+    @SuppressWarnings("unchecked")
+	private int fingerSearch( Object object ) {
+		long key = keyOf( object );
+		long steps = fingerSteps;
+		fingerSearches++;
+		if( root == null ) {
+			fingerDepth = 0;
+			return -1;
+		}
+		int depth = fingerModCount == modCount ? fingerDepth : 0;
+		if( depth == 0 ) {
+			record( 0, root );
+			bound( 0, false );
+			depth = 1;
+		}
+		
+		// Climb until the object lies between the bounds
+		// of the subtree of the node at this depth
+		int index = depth - 1;
+		while( index > 0 ) {
+			int low = fingerLow[index];
+			if( low >= 0 ) {
+				fingerSteps++;
+				if( compare( object, key, path[low] ) <= 0 ) {
+					index = low;
+					continue;
+				}
+			}
+			int high = fingerHigh[index];
+			if( high >= 0 ) {
+				fingerSteps++;
+				if( compare( object, key, path[high] ) >= 0 ) {
+					index = high;
+					continue;
+				}
+			}
+			break;
+		}
+		if( index > 0 ) {
+			fingerHits++;
+		}
+		
+		// Walk down from there, extending the path
+		Node<E> node = path[index];
+		while( true ) {
+			int comparison = compare( object, key, node );
+			fingerSteps++;
+			Node<E> child = comparison < 0 ? node.left : node.right;
+			if( comparison == 0 || child == null ) {
+				fingerDepth = index + 1;
+				fingerModCount = modCount;
+				if( stats != null ) {
+					stats.searched( ( int ) ( fingerSteps - steps ) );
+				}
+				return comparison;
+			}
+			record( ++index, child );
+			bound( index, comparison > 0 );
+			node = child;
+		}
+	}
+    
+    /**
+     * This method records the bounds of the node at the
+     * given depth of the finger, from those of its parent.
+     * @param    depth   the depth of the node
+     * @param    right   true if the node is a right child,
+     *                   false if it is a left child or the root
+     */
+	private void bound( int depth, boolean right ) {
+		if( fingerLow == null ) {
+			fingerLow = new int[ path.length ];
+			fingerHigh = new int[ path.length ];
+		}
+		else if( fingerLow.length < path.length ) {
+			fingerLow = Arrays.copyOf( fingerLow, path.length );
+			fingerHigh = Arrays.copyOf( fingerHigh, path.length );
+		}
+		if( depth == 0 ) {
+			fingerLow[0] = fingerHigh[0] = -1;
+		}
+		else if( right ) {
+			fingerLow[depth] = depth - 1;
+			fingerHigh[depth] = fingerHigh[depth - 1];
+		}
+		else{
+			fingerLow[depth] = fingerLow[depth - 1];
+			fingerHigh[depth] = depth - 1;
+		}
+	}
+    
+    /**
+     * Returns the number of searches that started from
+     * the finger in finger mode.
+     * @return   long   the number of searches
+     */
+	public long fingerSearches() {
+		return fingerSearches;
+	}
+    
+    /**
+     * Returns the number of searches in finger mode that
+     * started below the root, because the object lay inside
+     * a subtree on the path of the finger.
+     * @return   long   the number of hits
+     */
+	public long fingerHits() {
+		return fingerHits;
+	}
+    
+    /**
+     * Returns the average number of comparisons a search
+     * in finger mode made, climbing and walking down, which
+     * is the distance it covered. A search from the root
+     * makes about log n of them.
+     * @return   double   the average distance, or 0 if
+     *                    there were no searches
+     */
+	public double fingerDistance() {
+		return fingerSearches == 0 ? 0 : ( double ) fingerSteps / fingerSearches;
+	}
+    
+    /**
+     * This method compares an object to an element
+     * of the tree in the order of the tree.
+     * @param    object   the object to compare
+     * @param    e        the element to compare it to
+     * @return   int      a negative number, zero or a
+     *                    positive number as the object is
+     *                    less than, equal to or greater
+     *                    than the element
+     */
+    @SuppressWarnings("unchecked")
+	int compare( Object object, E e ) {
+		if( comparator != null ) {
+			return comparator.compare( ( E ) object, e );
+		}
+		return ( ( Comparable<? super E> ) object ).compareTo( e );
+	}
+    
+    /**
+     * This method returns the sort key of an object,
+     * which a search computes once and passes to every
+     * comparison it makes.
+     * @param    object   the object
+     * @return   long     its sort key, or 0 if the tree
+     *                    has no sort key
+     */
+    @SuppressWarnings("unchecked")
+	private long keyOf( Object object ) {
+		return sortKey == null ? 0 : sortKey.applyAsLong( ( E ) object );
+	}
+    
+    /**
+     * This method compares an object to the element of a
+     * node in the order of the tree. With a sort key, the key
+     * of the object is compared to the one kept in the node,
+     * and the elements themselves only when they are equal.
+     * @param    object   the object to compare
+     * @param    key      the sort key of the object
+     * @param    node     the node to compare it to
+     * @return   int      a negative number, zero or a
+     *                    positive number as the object is
+     *                    less than, equal to or greater
+     *                    than the element of the node
+     */
+    @SuppressWarnings("unchecked")
+	private int compare( Object object, long key, Node<E> node ) {
+		if( sortKey != null ) {
+			long other = ( ( KeyedNode<E> ) node ).key;
+			if( key != other ) {
+				return key < other ? -1 : 1;
+			}
+			if( tieBreak != null ) {
+				return tieBreak.compare( ( E ) object, node.data );
+			}
+		}
+		else if( comparator != null ) {
+			return comparator.compare( ( E ) object, node.data );
+		}
+		return ( ( Comparable<? super E> ) object ).compareTo( node.data );
+	}
+    
+    /**
+     * This method records the path from the root to
+     * the node holding the given object.
+     * @param    object    the object we are looking for
+     * @return   int       the number of nodes on the path,
+     *                     the last of which holds the object,
+     *                     or 0 if the object is not in the tree
+     */
+    @SuppressWarnings("unchecked")
+	private int findPath( Object object ) {
+		long key = keyOf( object );
+		fingerDepth = 0;
+		Node<E> node = root;
+		int depth = 0;
+		while( node != null ) {
+			int comparison = compare( object, key, node );
+			record( depth++, node );
+			if( comparison == 0 ) {
+				break;
+			}
+			node = comparison < 0 ? node.left : node.right;
+		}
+		if( stats != null ) {
+			stats.searched( depth );
+		}
+		return node != null ? depth : 0;
+	}
+    
+    /**
+     * This method records the path from the root to the
+     * node holding the smallest or the largest element.
+     * @param    largest   true for the largest element,
+     *                     false for the smallest
+     * @return   int       the number of nodes on the path,
+     *                     or 0 if the tree is empty
+     */
+	private int endPath( boolean largest ) {
+		fingerDepth = 0;
+		Node<E> node = root;
+		int depth = 0;
+		while( node != null ) {
+			record( depth++, node );
+			node = largest ? node.right : node.left;
+		}
+		return depth;
+	}
+    
+    /**
+     * This method removes an object from the tree. If
+     * the object is not in the tree, it returns false.
+     * @param    object    the object to remove
+     * @return   boolean   true if the object was removed,
+     *                     false otherwise
+     */
+    public boolean remove( Object object ) {
+		int depth = findPath( object );
+		if( depth == 0 ) {
+			return false;
+		}
+		deletePath( depth );
+		if( adaptive && ++writes + reads >= ADAPT_INTERVAL ) {
+			adapt();
+		}
+		return true;
+	}
+    
+    /**
+     * This method unlinks the last node on the path from
+     * the tree. A node with two children takes the data of
+     * the next node in order, which has no left child, and
+     * that node is unlinked instead. The nodes on the path
+     * that are shared with a snapshot are copied first. If
+     * the tree has shrunk below alpha times the largest size
+     * it had since it was last rebuilt, the whole tree is
+     * rebuilt, so removing elements also keeps the tree
+     * balanced.
+     * @param    depth   the number of nodes on the path
+     */
+	private void deletePath( int depth ) {
+		
+		// Record that a modification has
+		// been made to the structure
+		modCount++;
+		size--;
+		
+		// If the node has two children, extend the path
+		// to the next node in order, which is unlinked instead
+		int target = depth - 1;
+		Node<E> node = path[target];
+		if( node.left != null && node.right != null ) {
+			Node<E> successor = node.right;
+			record( depth++, successor );
+			while( successor.left != null ) {
+				successor = successor.left;
+				record( depth++, successor );
+			}
+		}
+		
+		// Copy the nodes on the path that are
+		// shared with a snapshot, and move the data
+		// of the next node in order if needed
+		ownPath( depth );
+		node = path[depth - 1];
+		if( target != depth - 1 ) {
+			path[target].data = node.data;
+			if( sortKey != null ) {
+				( ( KeyedNode<E> ) path[target] ).key = ( ( KeyedNode<E> ) node ).key;
+			}
+		}
+		
+		// Replace the node by its only child, if any
+		Node<E> child = node.left != null ? node.left : node.right;
+		if( depth == 1 ) {
+			root = child;
+		}
+		else if( path[depth - 2].left == node ) {
+			path[depth - 2].left = child;
+		}
+		else{
+			path[depth - 2].right = child;
+		}
+		node.left = null;
+		node.right = null;
+		recycle( node );
+		
+		// Every ancestor of the node now
+		// has one less node in its subtree
+		for( int index = 0; index < depth - 1; index++ ) {
+			path[index].size--;
+		}
+		
+		// If the tree is empty, start over
+		if( size == 0 ) {
+			maxSize = 0;
+			currentHeight = 0;
+			maxHeight = policy.minHeight();
+		}
+		
+		// If the tree has shrunk too much, rebuild it
+		else if( size < alpha() * maxSize ) {
+			rebuild( root, size, null );
+		}
+	}
+    
+    /**
+     * This method finds the node holding the 
+     * smallest element in the tree.
+     * @return   Node<E>   the node with the smallest element,
+     *                     or null if the tree is empty
+     */
+	Node<E> lowestNode() {
+		Node<E> node = root;
+		if( node != null ) {
+			while( node.left != null ) {
+				node = node.left;
+			}
+		}
+		return node;
+	}
+    
+    /**
+     * This method finds the node holding the 
+     * largest element in the tree.
+     * @return   Node<E>   the node with the largest element,
+     *                     or null if the tree is empty
+     */
+	Node<E> highestNode() {
+		Node<E> node = root;
+		if( node != null ) {
+			while( node.right != null ) {
+				node = node.right;
+			}
+		}
+		return node;
+	}
+    
+    /**
+     * This method finds the node holding the smallest
+     * element that is greater than the given object, or
+     * equal to it if inclusive is true.
+     * @param    object      the object to compare with
+     * @param    inclusive   true if an equal element counts
+     * @return   Node<E>     the node found, or null if there
+     *                       is no such element
+     */
+	Node<E> ceilingNode( Object object, boolean inclusive ) {
+		Node<E> node = root;
+		Node<E> best = null;
+		while( node != null ) {
+			int comparison = compare( object, node.data );
+			if( comparison < 0 || ( comparison == 0 && inclusive ) ) {
+				best = node;
+				if( comparison == 0 ) {
+					break;
+				}
+				node = node.left;
+			}
+			else{
+				node = node.right;
+			}
+		}
+		return best;
+	}
+    
+    /**
+     * This method finds the node holding the largest
+     * element that is less than the given object, or
+     * equal to it if inclusive is true.
+     * @param    object      the object to compare with
+     * @param    inclusive   true if an equal element counts
+     * @return   Node<E>     the node found, or null if there
+     *                       is no such element
+     */
+	Node<E> floorNode( Object object, boolean inclusive ) {
+		Node<E> node = root;
+		Node<E> best = null;
+		while( node != null ) {
+			int comparison = compare( object, node.data );
+			if( comparison > 0 || ( comparison == 0 && inclusive ) ) {
+				best = node;
+				if( comparison == 0 ) {
+					break;
+				}
+				node = node.right;
+			}
+			else{
+				node = node.left;
+			}
+		}
+		return best;
+	}
+    
+    /**
+     * This method returns the data of a node, 
+     * or null if there is no node.
+     * @param    node   the node, or null
+     * @return   E      the data of the node, or null
+     */
+	private E data( Node<E> node ) {
+		return node == null ? null : node.data;
+	}
+    
+    /**
+     * Returns the smallest element in the tree.
+     * @return   E   the smallest element
+     * @throws   NoSuchElementException   if the tree is empty
+     */
+	public E first() {
+		Node<E> node = lowestNode();
+		if( node == null ) {
+			throw new NoSuchElementException();
+		}
+		return node.data;
+	}
+    
+    /**
+     * Returns the largest element in the tree.
+     * @return   E   the largest element
+     * @throws   NoSuchElementException   if the tree is empty
+     */
+	public E last() {
+		Node<E> node = highestNode();
+		if( node == null ) {
+			throw new NoSuchElementException();
+		}
+		return node.data;
+	}
+    
+    /**
+     * Returns the largest element less than
+     * or equal to the given one.
+     * @param    e   the element to compare with
+     * @return   E   the element found, or null if there is none
+     */
+	public E floor( E e ) {
+		return data( floorNode( e, true ) );
+	}
+    
+    /**
+     * Returns the largest element strictly 
+     * less than the given one.
+     * @param    e   the element to compare with
+     * @return   E   the element found, or null if there is none
+     */
+	public E lower( E e ) {
+		return data( floorNode( e, false ) );
+	}
+    
+    /**
+     * Returns the smallest element greater than
+     * or equal to the given one.
+     * @param    e   the element to compare with
+     * @return   E   the element found, or null if there is none
+     */
+	public E ceiling( E e ) {
+		return data( ceilingNode( e, true ) );
+	}
+    
+    /**
+     * Returns the smallest element strictly 
+     * greater than the given one.
+     * @param    e   the element to compare with
+     * @return   E   the element found, or null if there is none
+     */
+	public E higher( E e ) {
+		return data( ceilingNode( e, false ) );
+	}
+    
+    /**
+     * Removes and returns the smallest element in the tree.
+     * @return   E   the smallest element, or null if
+     *               the tree is empty
+     */
+	public E pollFirst() {
+		int depth = endPath( false );
+		if( depth == 0 ) {
+			return null;
+		}
+		E e = path[depth - 1].data;
+		deletePath( depth );
+		return e;
+	}
+    
+    /**
+     * Removes and returns the largest element in the tree.
+     * @return   E   the largest element, or null if
+     *               the tree is empty
+     */
+	public E pollLast() {
+		int depth = endPath( true );
+		if( depth == 0 ) {
+			return null;
+		}
+		E e = path[depth - 1].data;
+		deletePath( depth );
+		return e;
+	}
+    
+    /**
+     * Returns an iterator over the elements of 
+     * the tree from largest to smallest.
+     * @return   Iterator<E>   a descending iterator
+     */
+	public Iterator<E> descendingIterator() {
+		return new StudentIterator<E>( this, null, false, null, false, true );
+	}
+    
+    /**
+     * Returns a live view of the tree with
+     * its elements in descending order.
+     * @return   NavigableSet<E>   a descending view
+     */
+	public NavigableSet<E> descendingSet() {
+		return new StudentSubSet<E>( this, null, false, null, false, true );
+	}
+    
+    /**
+     * Returns a live view of the elements from fromElement
+     * to toElement. Elements added to or removed from the view
+     * are added to or removed from the tree.
+     * @param    fromElement       the lowest element of the view
+     * @param    fromInclusive     true if fromElement is in the view
+     * @param    toElement         the highest element of the view
+     * @param    toInclusive       true if toElement is in the view
+     * @return   NavigableSet<E>   the view
+     */
+	public NavigableSet<E> subSet( E fromElement, boolean fromInclusive,
+			E toElement, boolean toInclusive ) {
+		if( compare( fromElement, toElement ) > 0 ) {
+			throw new IllegalArgumentException( "fromElement > toElement" );
+		}
+		return new StudentSubSet<E>( this, fromElement, fromInclusive,
+				toElement, toInclusive, false );
+	}
+    
+    /**
+     * Returns a live view of the elements less than
+     * toElement, or equal to it if inclusive is true.
+     * @param    toElement         the highest element of the view
+     * @param    inclusive         true if toElement is in the view
+     * @return   NavigableSet<E>   the view
+     */
+	public NavigableSet<E> headSet( E toElement, boolean inclusive ) {
+		
+		// Compare the element with itself, which checks
+		// its type and that it is not null, as TreeSet does
+		compare( toElement, toElement );
+		return new StudentSubSet<E>( this, null, false, toElement, inclusive, false );
+	}
+    
+    /**
+     * Returns a live view of the elements greater than
+     * fromElement, or equal to it if inclusive is true.
+     * @param    fromElement       the lowest element of the view
+     * @param    inclusive         true if fromElement is in the view
+     * @return   NavigableSet<E>   the view
+     */
+	public NavigableSet<E> tailSet( E fromElement, boolean inclusive ) {
+		
+		// Compare the element with itself, which checks
+		// its type and that it is not null, as TreeSet does
+		compare( fromElement, fromElement );
+		return new StudentSubSet<E>( this, fromElement, inclusive, null, false, false );
+	}
+    
+    /**
+     * Returns a live view of the elements from fromElement,
+     * inclusive, to toElement, exclusive.
+     * @param    fromElement   the lowest element of the view
+     * @param    toElement     the element after the view
+     * @return   SortedSet<E>  the view
+     */
+	public SortedSet<E> subSet( E fromElement, E toElement ) {
+		return subSet( fromElement, true, toElement, false );
+	}
+    
+    /**
+     * Returns a live view of the elements less than toElement.
+     * @param    toElement     the element after the view
+     * @return   SortedSet<E>  the view
+     */
+	public SortedSet<E> headSet( E toElement ) {
+		return headSet( toElement, false );
+	}
+    
+    /**
+     * Returns a live view of the elements greater 
+     * than or equal to fromElement.
+     * @param    fromElement   the lowest element of the view
+     * @return   SortedSet<E>  the view
+     */
+	public SortedSet<E> tailSet( E fromElement ) {
+		return tailSet( fromElement, true );
+	}
+    
+    /**
+     * This method returns the size of a subtree.
+     * @param    node   the root of the subtree, or null
+     * @return   int    the number of nodes in the subtree
+     */
+	private static int size( Node<?> node ) {
+		return node == null ? 0 : node.size;
+	}
+    
+    /**
+     * This method counts the elements of the tree that
+     * are less than the given object, or equal to it if
+     * inclusive is true. At each node on the way down,
+     * every element in the left subtree and the node itself
+     * are counted if the walk goes on to the right.
+     * @param    object      the object to compare with
+     * @param    inclusive   true if an equal element counts
+     * @return   int         the number of elements
+     */
+	int countBelow( Object object, boolean inclusive ) {
+		int count = 0;
+		Node<E> node = root;
+		while( node != null ) {
+			int comparison = compare( object, node.data );
+			if( comparison < 0 ) {
+				node = node.left;
+			}
+			else if( comparison > 0 ) {
+				count += size( node.left ) + 1;
+				node = node.right;
+			}
 			else{
-				return bubbleDown( ancestor.left, descendant, depth );
+				count += size( node.left ) + ( inclusive ? 1 : 0 );
+				break;
 			}
 		}
-		
-		// If the data in the node is greater than the
-		// data in the current node
-		else{
-			
-			// If the right child position of the current
-			// node is empty, put the node there
-			if( ancestor.right == null ) {
-				ancestor.right = descendant;
-				descendant.parent = ancestor;
-				return true;
+		return count;
+	}
+    
+    /**
+     * Returns the rank of an element, which is the number
+     * of elements in the tree that are less than it. The
+     * rank of an element in the tree is its index in order.
+     * @param    e     the element
+     * @return   int   the number of smaller elements
+     */
+	public int rank( E e ) {
+		return countBelow( e, false );
+	}
+    
+    /**
+     * Returns the element with the given rank, that is
+     * the element at that index in order.
+     * @param    index   the rank, from 0 to size() - 1
+     * @return   E       the element with that rank
+     * @throws   IndexOutOfBoundsException   if there is no
+     *                                       such element
+     */
+	public E select( int index ) {
+		if( index < 0 || index >= size ) {
+			throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+		}
+		Node<E> node = root;
+		while( true ) {
+			int leftSize = size( node.left );
+			if( index < leftSize ) {
+				node = node.left;
+			}
+			else if( index > leftSize ) {
+				index -= leftSize + 1;
+				node = node.right;
 			}
-			
-			// If the right child position is occupied, make
-			// a recursive call on the right child
 			else{
-				return bubbleDown( ancestor.right, descendant, depth );
+				return node.data;
 			}
 		}
 	}
-	
-	/**
-	 * This method rebuilds the tree in O(n) time.
-	 * It does so by getting the elements of the 
-	 * tree in order, finding the middle, using it
-	 * as the new root, and then uses a recursive
-	 * method on the left and right hand sides of
-	 * ordered elements.
-	 */
-	@SuppressWarnings("unchecked")
-	private void rebuild() {
-		
-		// Reset the current height to zero
-		currentHeight = 0;
-		
-		// If the number of elements exceeds the 
-		// amount that would be present in a full tree
-		// of height equal to maxHeight, than increase
-		// maxHeight by one.
-		if( size() >= ( ( 2^maxHeight ) - 1 ) ) {
-			maxHeight ++;
+    
+    /**
+     * Returns the number of elements from low to high,
+     * both inclusive.
+     * @param    low    the lowest element to count
+     * @param    high   the highest element to count
+     * @return   int    the number of elements in the range
+     */
+	public int countInRange( E low, E high ) {
+		if( compare( low, high ) > 0 ) {
+			return 0;
 		}
+		return countBelow( high, true ) - countBelow( low, false );
+	}
+    
+    /**
+     * Returns a copy of this tree with the same
+     * shape. The elements themselves are not copied.
+     * @return   Object   the copy
+     */
+    @SuppressWarnings("unchecked")
+	public Object clone() {
+		StudentTreeSet<E> copy = ( StudentTreeSet<E> ) super.clone();
+		copy.path = path.clone();
+		copy.fingerDepth = 0;
+		copy.fingerLow = null;
+		copy.fingerHigh = null;
+		copy.stats = null;
+		copy.free = null;
+		copy.freeCount = 0;
+		copy.root = copy.copy( root );
+		copy.modCount = 0;
+		return copy;
+	}
+    
+    /**
+     * This method recursively copies a subtree.
+     * @param    node      the root of the subtree to copy
+     * @return   Node<E>   the root of the copy
+     */
+	private Node<E> copy( Node<E> node ) {
+		if( node == null ) {
+			return null;
+		}
+		Node<E> copy = newNode( node.data );
+		copy.size = node.size;
+		copy.left = copy( node.left );
+		copy.right = copy( node.right );
+		return copy;
+	}
+    
+    /**
+     * This method writes the tree to an object stream. The
+     * settings of the tree are written as usual, followed by
+     * the number of elements and the elements in order.
+     * @param    out   the stream to write to
+     * @throws   NotSerializableException   if the tree is
+     *                                      ordered by a sort key
+     * @throws   IOException   if the stream cannot be written
+     */
+	private void writeObject( ObjectOutputStream out ) throws IOException {
+		if( sortKey != null ) {
+			throw new NotSerializableException(
+					"A tree ordered by a sort key cannot be serialized" );
+		}
+		out.defaultWriteObject();
+		out.writeInt( size );
+		for( E e : this ) {
+			out.writeObject( e );
+		}
+	}
+    
+    /**
+     * This method reads a tree written by writeObject(). The
+     * elements arrive in order, so they are linked straight
+     * into a perfectly balanced tree in O( n ) time.
+     * @param    in   the stream to read from
+     * @throws   IOException   if the stream cannot be read or
+     *                         does not hold a tree
+     * @throws   ClassNotFoundException   if the class of an
+     *                                    element is not found
+     */
+    @SuppressWarnings("unchecked")
+	private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		path = Node.array( 16 );
 		
-		// The elements of the tree in order
-		Object[] elements = inOrder();
-		
-		// Clear the tree
-		clear();
-		
-		// Find the middle of the ordered elements
-		int middle = elements.length / 2;
-		
-		// Add the middles element first. It will be
-		// the root in the rebuilt tree
-		add( ( E ) elements[middle] );
+		// A tree written before it had a
+		// policy gets the default one
+		maxHeight = 0;
+		usePolicy( policy != null ? policy : BalancePolicy.DEFAULT );
+		int count = in.readInt();
+		if( count < 0 ) {
+			throw new InvalidObjectException( "Negative size: " + count );
+		}
 		
-		// Call the recursive helpBuild method on the
-		// left and right hand sides of the ordered elements.
-		helpRebuild( 0, middle - 1, elements );
-		helpRebuild( middle + 1, elements.length-1, elements );
+		// The count is not trusted to size the array, which
+		// only grows as far as elements actually arrive
+		Object[] elements = new Object[ Math.min( count, BLOCK_BYTES ) ];
+		for( int index = 0; index < count; index++ ) {
+			if( index == elements.length ) {
+				elements = Arrays.copyOf( elements, grown( elements.length, count ) );
+			}
+			elements[index] = in.readObject();
+		}
+		load( elements );
 	}
-	
-	/**
-	 * This method recursively finds the middle element
-	 * of a segment of the array of ordered elements and
-	 * adds it to the tree.
-	 * @param   start   the starting index of this segment
-	 * @param   end     the ending index of this segment
-	 * @param   arr     the array of ordered elements
-	 */
-	@SuppressWarnings("unchecked")
-	private void helpRebuild( int start, int end, Object[] arr ) {
-		
-		// If start and end are equal, add the element
-		// at that position and terminate the recursion.
-		if( start == end ) {
-			add( ( E ) arr[start] );
+    
+    /**
+     * This method returns the length to grow an array of
+     * elements being read to: twice as long, but no longer
+     * than the number of elements the stream claims to hold.
+     * @param    length   the current length of the array
+     * @param    count    the number of elements in the stream
+     * @return   int      the new length
+     */
+	private static int grown( int length, int count ) {
+		return ( int ) Math.min( count, Math.max( 1L, length * 2L ) );
+	}
+    
+    /**
+     * This method returns the width of a codec's elements,
+     * after checking that it is one the sets can store.
+     * @param    codec   the codec
+     * @return   int     the width of an element in bytes
+     * @throws   IllegalArgumentException   if the width is not
+     *                                      from 1 to 1024 bytes
+     */
+	static int checkedWidth( ElementCodec<?> codec ) {
+		int width = codec.width();
+		if( width < 1 || width > 1024 ) {
+			throw new IllegalArgumentException( "Width must be from 1 to 1024 bytes." );
 		}
-		else{
-			
-			// Find the middle of this segment
-			int middle = start + ( ( end - start ) / 2 );
-			
-			// If the calculated middle value
-			// is truly between start and end
-			if( middle < end || middle > start) {
-				
-				// Add the middle value to the tree
-				add( ( E ) arr[middle] );
-				
-				// Make a recursive call on the left and
-				// right hand sides of the ordered elements.
-				helpRebuild( start, middle - 1, arr );
-				helpRebuild( middle + 1, end, arr );
+		return width;
+	}
+    
+    /**
+     * This method links elements that were written in order
+     * into the tree, which must be empty, without comparing
+     * more than each element with the one before it.
+     * @param    elements   the elements in ascending order
+     * @throws   InvalidObjectException   if an element is null
+     *                                    or out of order
+     */
+	private void load( Object[] elements ) throws InvalidObjectException {
+		for( Object element : elements ) {
+			if( element == null ) {
+				throw new InvalidObjectException( "Null element" );
 			}
-		}	
+		}
+		try {
+			checkOrder( elements );
+			merge( elements );
+		}
+		catch( IllegalArgumentException | ClassCastException e ) {
+			throw new InvalidObjectException( "Elements are not in order" );
+		}
 	}
-	
-	/**
-	 * This method adds an element of type E
-	 * to the tree. If the element already 
-	 * exists in this tree, then this method
-	 * return false.
-	 * @param    e         an element of type E to 
-	 *                     be added to the tree
-	 * @return   boolean   true if this element could
-	 *                     be added, false otherwise
-	 */
-	public boolean add( E e ) {
+    
+    /**
+     * This method writes the elements of the tree in order
+     * to an Appendable, such as a Writer, in the same form
+     * as toString(). The nodes are walked directly, and the
+     * text is collected in a buffer that is handed to the
+     * Appendable whenever it fills, so no array of the
+     * elements and no string of the whole tree is built.
+     * @param    out   where to write the elements
+     * @throws   IOException   if they cannot be written
+     */
+	public void writeTo( Appendable out ) throws IOException {
+		writeTo( out, size );
+	}
+    
+    /**
+     * This method writes the first elements of the
+     * tree in order to an Appendable, followed by the
+     * number of the others if there are more.
+     * @param    out           where to write the elements
+     * @param    maxElements   the most elements to write
+     * @throws   IOException   if they cannot be written
+     */
+	private void writeTo( Appendable out, int maxElements ) throws IOException {
 		
-		// So long as the element isn't null
-		if( e != null ) {
-			
-			// Notify any iterators observing
-			// this tree that a modification has
-			// been made to the structure
-			notifyIterators();
-			
-			// If the root is empty
-			if( root == null ) {
-				Node<E> node = new Node<E>( e );
-				root = node;
+		// Write straight into a StringBuilder, and
+		// through a buffer into anything else
+		StringBuilder buffer = out instanceof StringBuilder ?
+				( StringBuilder ) out : new StringBuilder( TEXT_CHARS + 64 );
+		buffer.append( '[' );
+		int written = walk( maxElements, ( index, e ) -> {
+			if( index > 0 ) {
+				buffer.append( ", " );
 			}
+			buffer.append( e );
+			if( buffer != out && buffer.length() >= TEXT_CHARS ) {
+				out.append( buffer );
+				buffer.setLength( 0 );
+			}
+		} );
+		if( written < size ) {
+			buffer.append( written > 0 ? ", ... " : "... " ).append( size - written ).append( " more" );
+		}
+		buffer.append( ']' );
+		if( buffer != out ) {
+			out.append( buffer );
+		}
+	}
+    
+    /**
+     * This interface takes the elements
+     * of the tree one at a time.
+     *
+     * @param    <E>   the type of the elements
+     */
+	private interface ElementSink < E > {
+		
+		/**
+		 * This method takes the next element.
+		 * @param    index   the rank of the element
+		 * @param    e       the element
+		 * @throws   IOException   if it cannot be written
+		 */
+		void accept( int index, E e ) throws IOException;
+	}
+    
+    /**
+     * This method passes the first elements of the tree to
+     * a sink in order. It walks the nodes with a stack of
+     * the nodes whose left subtree is being walked, rather
+     * than through an iterator.
+     * @param    maxElements   the most elements to pass
+     * @param    sink          takes the elements
+     * @return   int           the number of elements passed
+     * @throws   IOException   if the sink cannot write one
+     */
+	private int walk( int maxElements, ElementSink<E> sink ) throws IOException {
+		Node<E>[] stack = Node.array( currentHeight + 2 );
+		int pointer = -1;
+		int count = 0;
+		Node<E> node = root;
+		while( count < maxElements && ( node != null || pointer >= 0 ) ) {
 			
-			// If the root is not empty, then
-			// bubble down
-			else{
-				Node<E> node = new Node<E>( e );
-				
-				// If the element could not be added,
-				// return false
-				if( !bubbleDown( root, node, 0 ) ) {
-					return false;
+			// Go as far left as possible
+			if( node != null ) {
+				if( ++pointer == stack.length ) {
+					stack = Arrays.copyOf( stack, stack.length * 2 );
 				}
+				stack[pointer] = node;
+				node = node.left;
 			}
 			
-			// Increment the size of the tree
-			size++;
-			
-			// If the current height exceeds the maximum height
-			// times the range factor, rebuild the tree.
-			if( currentHeight >= maxHeight * rangeFactor ) {
-				rebuild();
+			// Then pass the node on, and walk
+			// its right subtree
+			else{
+				node = stack[pointer--];
+				sink.accept( count++, node.data );
+				node = node.right;
 			}
-			return true;
 		}
-		
-		// If the element to be added is null
+		return count;
+	}
+    
+    /**
+     * This method writes the elements of the tree to a
+     * stream in order, each turned into width() bytes by
+     * the codec, after a header of a magic number, the width
+     * and the number of elements. The bytes are written a
+     * block at a time. The stream is not closed.
+     * @param    out     the stream to write to
+     * @param    codec   turns the elements into bytes
+     * @throws   IOException   if the stream cannot be written
+     * @throws   IllegalArgumentException   if the codec is not
+     *                                      from 1 to 1024 bytes wide
+     */
+	public void writeTo( OutputStream out, ElementCodec<E> codec ) throws IOException {
+		encode( ByteBuffer.allocate( Math.max( BLOCK_BYTES, codec.width() + 12 ) ), codec, out, null );
+	}
+    
+    /**
+     * This method writes the elements of the tree to a
+     * channel in the same form as writeTo() does to a stream,
+     * through one direct buffer, so the channel can take the
+     * bytes without copying them first. The channel is not
+     * closed. readFrom() reads them back from a stream, such
+     * as Channels.newInputStream() of the channel.
+     * @param    channel   the channel to write to
+     * @param    codec     turns the elements into bytes
+     * @throws   IOException   if the channel cannot be written
+     * @throws   IllegalArgumentException   if the codec is not
+     *                                      from 1 to 1024 bytes wide
+     */
+	public void writeTo( WritableByteChannel channel, ElementCodec<E> codec ) throws IOException {
+		encode( ByteBuffer.allocateDirect( Math.max( BLOCK_BYTES, codec.width() + 12 ) ), codec, null, channel );
+	}
+    
+    /**
+     * This method encodes the header and the elements of
+     * the tree into a buffer, writing it to a stream or a
+     * channel every time it fills.
+     * @param    buffer    the buffer to encode into
+     * @param    codec     turns the elements into bytes
+     * @param    out       the stream to write to, or null
+     * @param    channel   the channel to write to if there
+     *                     is no stream
+     * @throws   IOException   if the bytes cannot be written
+     */
+	private void encode( ByteBuffer buffer, ElementCodec<E> codec, OutputStream out,
+			WritableByteChannel channel ) throws IOException {
+		int width = checkedWidth( codec );
+		buffer.order( ByteOrder.LITTLE_ENDIAN );
+		buffer.putInt( MAGIC ).putInt( width ).putInt( size );
+		walk( size, ( index, e ) -> {
+			if( buffer.remaining() < width ) {
+				flush( buffer, out, channel );
+			}
+			codec.write( buffer, buffer.position(), e );
+			buffer.position( buffer.position() + width );
+		} );
+		flush( buffer, out, channel );
+	}
+    
+    /**
+     * This method writes the bytes encoded in a buffer
+     * to a stream or a channel, and empties the buffer.
+     * @param    buffer    the buffer
+     * @param    out       the stream to write to, or null
+     * @param    channel   the channel to write to if there
+     *                     is no stream
+     * @throws   IOException   if the bytes cannot be written
+     */
+	private static void flush( ByteBuffer buffer, OutputStream out,
+			WritableByteChannel channel ) throws IOException {
+		if( out != null ) {
+			out.write( buffer.array(), 0, buffer.position() );
+		}
 		else{
-			System.err.println( "Cannot add a null value." );
-			System.exit(0);	
-			return false;
+			buffer.flip();
+			while( buffer.hasRemaining() ) {
+				channel.write( buffer );
+			}
 		}
+		buffer.clear();
 	}
-	
-	/**
-	 * This method clears the tree of all elements, 
-	 * and resets the size of the tree to zero.
-	 */
-    public void clear() {
-    	notifyIterators();
-    	root = null;
-    	size = 0;
-    }
     
     /**
-     * This method uses a recursive method to
-     * determine if an object exists in the tree.
-     * 
-     * @return   boolean   true the tree contains
-     *                     the given object, false
-     *                     otherwise
+     * This method reads a tree written by writeTo(). The
+     * elements are decoded a block at a time and, because
+     * they are in order, linked into a perfectly balanced
+     * tree in O( n ) time instead of being added one by one.
+     * Nothing past the last element is read.
+     * @param    in      the stream to read from
+     * @param    codec   turns the bytes into elements, with
+     *                   the same width as when it was written
+     * @return   StudentTreeSet<E>   the tree
+     * @throws   IOException   if the stream cannot be read or
+     *                         does not hold such a tree
+     * @throws   IllegalArgumentException   if the codec is not
+     *                                      from 1 to 1024 bytes wide
      */
-    public boolean contains( Object object ) {
-    	return helpContains( root, object );
-    }
+	public static < E extends Comparable < E > > StudentTreeSet<E> readFrom(
+			InputStream in, ElementCodec<E> codec ) throws IOException {
+		DataInputStream data = new DataInputStream( in );
+		int width = checkedWidth( codec );
+		byte[] block = new byte[ Math.max( BLOCK_BYTES / width, 1 ) * width ];
+		ByteBuffer buffer = ByteBuffer.wrap( block ).order( ByteOrder.LITTLE_ENDIAN );
+		
+		// Read and check the header
+		data.readFully( block, 0, 12 );
+		if( buffer.getInt( 0 ) != MAGIC || buffer.getInt( 4 ) != width || buffer.getInt( 8 ) < 0 ) {
+			throw new StreamCorruptedException( "Not a tree of " + width + " byte elements" );
+		}
+		int count = buffer.getInt( 8 );
+		
+		// Decode the elements a block at a time. The count is
+		// not trusted to size the array, which only grows as
+		// far as the stream actually holds elements.
+		Object[] elements = new Object[ Math.min( count, block.length / width ) ];
+		int index = 0;
+		while( index < count ) {
+			int elementsInBlock = Math.min( count - index, block.length / width );
+			data.readFully( block, 0, elementsInBlock * width );
+			if( index + elementsInBlock > elements.length ) {
+				elements = Arrays.copyOf( elements, grown( elements.length, count ) );
+			}
+			for( int element = 0; element < elementsInBlock; element++ ) {
+				elements[index++] = codec.read( buffer, element * width );
+			}
+		}
+		StudentTreeSet<E> tree = new StudentTreeSet<E>();
+		tree.load( elements );
+		return tree;
+	}
     
     /**
-     * This method recursively looks for the given
-     * object in the tree by comparing the data of
-     * the current node to the object. If they are
-     * equal this method returns true, if not then
-     * a recursive call is made on either the right
-     * or left child of the current node. If we reach
-     * a null value, this method returns false.
-     * @param    node      the current node under
-     *                     consideration
-     * @param    object    the object we are looking for
-     * @return   boolean   true if the object is found
-     *                     in the tree, false otherwise
+     * Returns an unmodifiable view of the tree as it is
+     * now, in O( 1 ) time. The snapshot shares every node
+     * with the tree. Starting a new epoch makes each later 
+     * change copy the nodes on its path that belong to an
+     * older one, so the snapshot never sees the change, and
+     * the subtrees that did not change stay shared. Iterating
+     * over a snapshot is never stopped by changes to the tree.
+     * The copies are made even if the snapshot has since been
+     * discarded, but a node is copied at most once per epoch.
+     * @return   NavigableSet<E>   the snapshot
      */
-    @SuppressWarnings("unchecked")
-	private boolean helpContains( Node<E> node, Object object ) {
-    	
-    	// If we have not reached a null value
-    	if( node != null ){
-    		
-    		// Compare the object to the data in the current node
-    		int comparison = ( ( E ) object ).compareTo( node.data ); 
-    		
-    		// If the object and the data of the current
-    		// node are equal, return true
-	    	if( comparison == 0 ) {
-	    		return true;
-	    	}
-	    	
-	    	// If the object is less than the data of the
-	    	// current node, make a recursive call on the
-	    	// left child.
-	    	else if( comparison < 0 ) {
-	    		return helpContains( node.left, object );
-	    	}
-	    	
-	    	// If the object is greater than the data of the
-	    	// current node, make a recursive call on the
-	    	// right child.
-	    	else{
-	    		return helpContains( node.right, object );
-	    	}    		    
-    	}
-    	
-    	// If we reach a null value, return false
-    	return false;
-    }
+	public NavigableSet<E> snapshot() {
+		StudentTreeSet<E> snapshot = new StudentTreeSet<E>( partialRebuild );
+		snapshot.root = root;
+		snapshot.size = size;
+		snapshot.maxSize = maxSize;
+		snapshot.currentHeight = currentHeight;
+		snapshot.maxHeight = maxHeight;
+		snapshot.policy = policy;
+		snapshot.rangeFactor = rangeFactor;
+		snapshot.epoch = epoch;
+		snapshot.comparator = comparator;
+		snapshot.sortKey = sortKey;
+		snapshot.tieBreak = tieBreak;
+		epoch++;
+		return Collections.unmodifiableNavigableSet( snapshot );
+	}
     
     /**
      * This method determines returns true if the
@@ -341,102 +2603,75 @@ public class StudentTreeSet < E extends Comparable < E > >
     }
     
     /**
-     * The method returns an in order array of the
-     * tree's elements.
-     * @return   Object[]   an in order array of the
-     *                      elements in this tree
+     * This method returns a StudentIterator object.
+     * The iterator walks the tree lazily, so creating
+     * it does not copy any elements.
+     * @return   StudentIterator<E>   a StudentIterator object
      */
-    private Object[] inOrder() {
-    	
-    	// An array to hold the in order elements
-    	Object[] elements;
-    	
-    	// If the tree is not empty
-    	if( !isEmpty() ){
-    		
-    		// Initialize the array to hold
-    		// all of the elements
-    		elements = new Object[size()];
-    		
-    		// Use a recursive helper function
-    		// to place the elements into the array
-    		helpInOrder( root, elements );
-    		
-    		// Reset the pointer for the array
-    		pointer = 0;
-    	}
-    	
-    	// If the tree is empty, return an
-    	// empty array
-    	else{
-    		elements = new Object[0];
-    	}
-    	return elements;    	
+    public StudentIterator<E> iterator() {
+    	return new StudentIterator<E>( this );
     }
     
     /**
-     * This method recursively places elements of
-     * the tree into an array in order.
-     * @param    start      the node under consideration
-     * @param    elements   the array of in order elements
+     * Returns a read only copy of the tree that keeps
+     * its elements in one array in Eytzinger order, for
+     * sets that are searched far more often than changed.
+     * Later changes to the tree are not seen by the copy.
+     * @return   FrozenStudentTreeSet<E>   the copy
      */
-    private void helpInOrder( Node<E> start, Object[] elements ){
-    	
-    	// If the node is not a null value
-    	if( start != null ){
-    		
-    		// Make a recursive call on the left child
-    		helpInOrder( start.left, elements );
-    		
-    		// Add this element into the array
-    		elements[pointer] = start.data;
-    		
-    		// Increment the pointer
-    		pointer++;
-    		
-    		// Make a recursive call on the right child
-    		helpInOrder( start.right, elements );
-    	}
+    public FrozenStudentTreeSet<E> freeze() {
+    	return new FrozenStudentTreeSet<E>( toArray(), comparator );
     }
     
     /**
-     * This method returns a StudentIterator object.
-     * @return   StudentIterator<E>   a StudentIterator object
+     * This method returns a StudentSpliterator object,
+     * which splits the tree at its subtrees, so parallel
+     * streams over the tree divide the work evenly.
+     * @return   Spliterator<E>   a StudentSpliterator object
      */
-    public StudentIterator<E> iterator() {
-    	
-    	// If there is not enough room in the array of 
-    	// StudentIterator references, increase the size
-    	// of the array.
-    	if( iterPointer == iterators.length ) {
-    		Object[] copy = new Object[ iterators.length * 2 ];
-    		for( int iter = 0; iter < iterators.length; iter++ ){
-    			copy[iter] = iterators[iter];
-    		}
-    		iterators = copy;
-    	}
-    	
-    	// Create a new StudentIterator object
-    	StudentIterator<E> studentIterator =
-    			new StudentIterator<E>( inOrder(), this );
-    	iterators[iterPointer++] = studentIterator;
-    	return studentIterator;
+    public Spliterator<E> spliterator() {
+    	return new StudentSpliterator<E>( this );
     }
     
     /**
-     * Notifies the iterators observing this tree 
-     * that a change has been made to its structure.
+     * This method performs an action on every element
+     * of the tree in the common ForkJoinPool. The action
+     * may run on several elements at once, in any order.
+     * The tree must not be changed until it returns.
+     * @param    action   the action to perform
      */
-    @SuppressWarnings("unchecked")
-	private void notifyIterators() {
-    	
-    	// Loop over each iterator, setting its
-    	// modification flag to true.
-    	for( int iter = 0; iter < iterators.length; iter++ ) {
-    		if( iterators[iter] != null ){
-    			( ( StudentIterator<E> ) iterators[iter] ).modification = true;
-    		}
-    	}
+    public void parallelForEach( Consumer<? super E> action ) {
+    	ForkJoinPool.commonPool().invoke( new StudentSpliterator.ForEachTask<E>(
+    			spliterator(), action, leafSize() ) );
+    }
+    
+    /**
+     * This method reduces the elements of the tree to one
+     * result in the common ForkJoinPool, as Stream.reduce()
+     * does. Each part of the tree is reduced in order with the
+     * accumulator, and the results of neighbouring parts are
+     * merged with the combiner. The tree must not be changed
+     * until it returns.
+     * @param    identity      the result of reducing no elements
+     * @param    accumulator   adds one element to a result
+     * @param    combiner      combines the results of two parts
+     * @return   R             the result
+     */
+    public <R> R parallelReduce( R identity, BiFunction<R, ? super E, R> accumulator,
+    		BinaryOperator<R> combiner ) {
+    	return ForkJoinPool.commonPool().invoke( new StudentSpliterator.ReduceTask<E, R>(
+    			spliterator(), identity, accumulator, combiner, leafSize() ) );
+    }
+    
+    /**
+     * This method returns how many elements a parallel task
+     * handles without splitting: enough that every thread of
+     * the pool gets a few tasks, but at least 1024, so the 
+     * cost of a task stays small next to its work.
+     * @return   long   the number of elements
+     */
+    private long leafSize() {
+    	return Math.max( size / ( 4L * ForkJoinPool.getCommonPoolParallelism() ), 1024 );
     }
     
     /**
@@ -455,40 +2690,39 @@ public class StudentTreeSet < E extends Comparable < E > >
      *                            of this tree
      */
     public String toString() {
-    	
-    	// A string representation of the tree
-    	String representation;
-    	
-    	// If the tree is not empty
-    	if( !isEmpty() ){
-    		
-    		// Get the elements of the tree in order
-	    	Object[] elements = inOrder();
-	    	representation = "[";
-	    	
-	    	// Loop over the in order elements
-	    	for( int element = 0; element < elements.length - 1; element++ ) {
-	    		
-	    		// Call the elements toString() method and add the
-	    		// result to the string representation.
-	    		representation += elements[element].toString() + ", ";
-	    	}
-	    	representation += elements[elements.length - 1] + "]";
+    	return toString( size );
+    }
+    
+    /**
+     * Returns a string representation of the first
+     * elements of the tree, in order. If there are more,
+     * the string ends with the number of the others.
+     * @param    maxElements   the most elements to include
+     * @return   String        a string representation
+     *                         of the tree
+     */
+    public String toString( int maxElements ) {
+    	StringBuilder builder = new StringBuilder();
+    	try {
+    		writeTo( builder, maxElements );
     	}
     	
-    	// If the tree is empty 
-    	else{
-    		representation = "[]";
+    	// A StringBuilder never throws
+    	catch( IOException e ) {
+    		throw new UncheckedIOException( e );
     	}
-    	return representation;
+    	return builder.toString();
     }
     
     /**
      * The main method. It tests the different methods
      * of the StudentTreeSet class.
      * @param   args   command line arguments ( not used )
+     * @throws  IOException   if serializing the tree fails
+     * @throws  ClassNotFoundException   if reading the tree fails
      */
-	public static void main( String [] args ) {
+    @SuppressWarnings("unchecked")
+	public static void main( String [] args ) throws IOException, ClassNotFoundException {
     	
     	// Create a StudentTreeSet object
     	StudentTreeSet<Integer> tree = new StudentTreeSet<Integer>();
@@ -504,6 +2738,34 @@ public class StudentTreeSet < E extends Comparable < E > >
     	System.out.println( "Tree is empty: " + tree.isEmpty() +
     			" Number of elements: " + tree.size() );
     	
+    	// Test the bulk loader, which builds the same
+    	// tree in one pass without rebuilding
+    	Integer[] sorted = new Integer[10000];
+    	for( int integer = 0; integer < 10000; integer++ ) {
+    		sorted[integer] = Integer.valueOf( integer );
+    	}
+    	System.out.println( "fromSorted() equals add(): " + 
+    			tree.equals( StudentTreeSet.fromSorted( sorted ) ) );
+    	
+    	// Test that elements out of order are rejected before
+    	// the tree is changed, both for a batch large enough
+    	// to be merged and for one added one at a time
+    	Integer[] large = new Integer[10000];
+    	for( int integer = 0; integer < 10000; integer++ ) {
+    		large[integer] = 10500 + integer;
+    	}
+    	large[0] = 20000;
+    	for( Integer[] batch : new Integer[][] { large, { 10500, 10600, 10550 } } ) {
+    		try {
+    			tree.addAllSorted( batch );
+    			System.out.println( "Unsorted batch accepted" );
+    		}
+    		catch( IllegalArgumentException e ) {
+    			System.out.println( tree.size() + " " + tree.contains( 10500 ) + " " +
+    					tree.equals( StudentTreeSet.fromSorted( sorted ) ) );   // 10000 false true
+    		}
+    	}
+    	
     	// Test the boolean return values of add()
     	System.out.println( tree.add( new Integer( 5000 ) ) );   // False
     	System.out.println( tree.add( new Integer( 10001 ) ) );   // True
@@ -527,6 +2789,211 @@ public class StudentTreeSet < E extends Comparable < E > >
     	System.out.println( iter.hasNext() );
     	System.out.println( iter.next() );
     	
+    	for( int integer = 100; integer < 200; integer++ ) {
+    		tree.add( integer );
+    	}
+    	
+    	// Test that the iterator fails fast once the tree
+    	// is modified, and that a new one sees every element
+    	iter = tree.iterator();
+    	System.out.println( iter.next() );   // 0
+    	tree.add( 200 );
+    	try {
+    		iter.next();
+    		System.out.println( "Modification not detected" );
+    	}
+    	catch( ConcurrentModificationException e ) {
+    		System.out.println( "ConcurrentModificationException" );
+    	}
+    	int count = 0;
+    	for( Integer integer : tree ) {
+    		count++;
+    	}
+    	System.out.println( count );   // 201
+    	
+    	// Test remove() and the navigation methods
+    	System.out.println( tree.remove( Integer.valueOf( 50 ) ) );   // True
+    	System.out.println( tree.remove( Integer.valueOf( 50 ) ) );   // False
+    	System.out.println( tree.floor( Integer.valueOf( 50 ) ) );   // 49
+    	System.out.println( tree.ceiling( Integer.valueOf( 50 ) ) );   // 51
+    	System.out.println( tree.first() + " " + tree.last() );   // 0 200
+    	
+    	// Test the range views
+    	System.out.println( tree.subSet( Integer.valueOf( 45 ), Integer.valueOf( 55 ) ) );
+    	System.out.println( tree.headSet( Integer.valueOf( 5 ), false ).descendingSet() );
+    	
+    	// Test the order statistics
+    	System.out.println( tree.rank( Integer.valueOf( 60 ) ) );   // 59
+    	System.out.println( tree.select( 59 ) );   // 60
+    	System.out.println( tree.countInRange( Integer.valueOf( 45 ), Integer.valueOf( 55 ) ) );   // 10
+    	
+    	// Test that a snapshot does not see later changes,
+    	// and that iterating over it survives them
+    	NavigableSet<Integer> snapshot = tree.snapshot();
+    	Iterator<Integer> scan = snapshot.iterator();
+    	scan.next();
+    	tree.remove( Integer.valueOf( 0 ) );
+    	tree.add( Integer.valueOf( 500 ) );
+    	count = 1;
+    	while( scan.hasNext() ) {
+    		scan.next();
+    		count++;
+    	}
+    	System.out.println( count + " " + snapshot.size() );   // 200 200
+    	System.out.println( snapshot.first() + " " + snapshot.last() );   // 0 200
+    	System.out.println( tree.first() + " " + tree.last() );   // 1 500
+    	
+    	// Test the spliterator with a parallel stream
+    	// and the parallel helpers
+    	System.out.println( tree.stream().parallel().mapToLong( Integer::longValue ).sum() );   // 20550
+    	System.out.println( tree.parallelReduce( 0L, ( total, e ) -> total + e, Long::sum ) );   // 20550
+    	final int[] visited = new int[1];
+    	tree.parallelForEach( e -> {
+    		synchronized( visited ) {
+    			visited[0]++;
+    		}
+    	} );
+    	System.out.println( visited[0] );   // 200
+    	
+    	// Test that serializing the tree keeps its elements,
+    	// both as an object and through a codec
+    	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    	ObjectOutputStream out = new ObjectOutputStream( bytes );
+    	out.writeObject( tree );
+    	out.close();
+    	StudentTreeSet<Integer> copy = ( StudentTreeSet<Integer> ) new ObjectInputStream(
+    			new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+    	System.out.println( copy.equals( tree ) + " " + copy.size() );   // true 200
+    	
+    	// Test that a built-in balance policy is the same
+    	// constant after the tree is read back
+    	bytes.reset();
+    	out = new ObjectOutputStream( bytes );
+    	out.writeObject( new StudentTreeSet<Integer>( false, false, BalancePolicy.EAGER ) );
+    	out.close();
+    	copy = ( StudentTreeSet<Integer> ) new ObjectInputStream(
+    			new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+    	System.out.println( ( copy.balancePolicy() == BalancePolicy.EAGER ) + " " +
+    			BalancePolicy.fixed( 2.5, 6 ).equals( BalancePolicy.LAZY ) );   // true true
+    	bytes.reset();
+    	tree.writeTo( bytes, ElementCodec.INTEGER );
+    	copy = StudentTreeSet.readFrom( new ByteArrayInputStream( bytes.toByteArray() ), ElementCodec.INTEGER );
+    	System.out.println( copy.equals( tree ) + " " + bytes.size() );   // true 812
+    	
+    	// Test that a header claiming more elements than the
+    	// stream holds fails when the stream ends, instead of
+    	// allocating room for all of them first
+    	byte[] truncated = Arrays.copyOf( bytes.toByteArray(), 40 );
+    	ByteBuffer.wrap( truncated ).order( ByteOrder.LITTLE_ENDIAN ).putInt( 8, Integer.MAX_VALUE );
+    	try {
+    		StudentTreeSet.readFrom( new ByteArrayInputStream( truncated ), ElementCodec.INTEGER );
+    		System.out.println( "Truncated stream accepted" );
+    	}
+    	catch( IOException e ) {
+    		System.out.println( e.getClass().getSimpleName() );   // EOFException
+    	}
+    	
+    	// Test that a codec without a width is rejected
+    	// both when writing and when reading
+    	ElementCodec<Integer> empty = new ElementCodec<Integer>() {
+    		public int width() {
+    			return 0;
+    		}
+    		public void write( ByteBuffer buffer, int offset, Integer e ) {
+    		}
+    		public Integer read( ByteBuffer buffer, int offset ) {
+    			return 0;
+    		}
+    		public int compare( Integer e, ByteBuffer buffer, int offset ) {
+    			return 0;
+    		}
+    	};
+    	try {
+    		tree.writeTo( new ByteArrayOutputStream(), empty );
+    		System.out.println( "Empty codec written" );
+    	}
+    	catch( IllegalArgumentException e ) {
+    		System.out.print( e.getMessage() + " " );
+    	}
+    	try {
+    		StudentTreeSet.readFrom( new ByteArrayInputStream( truncated ), empty );
+    		System.out.println( "Empty codec read" );
+    	}
+    	catch( IllegalArgumentException e ) {
+    		System.out.println( e.getMessage() );   // Width must be from 1 to 1024 bytes. (twice)
+    	}
+    	
+    	// Test that a tree ordered by a sort key is
+    	// rejected clearly rather than half written
+    	try {
+    		new ObjectOutputStream( new ByteArrayOutputStream() ).writeObject(
+    				new StudentTreeSet<Integer>( Integer::longValue, null ) );
+    		System.out.println( "Keyed tree serialized" );
+    	}
+    	catch( NotSerializableException e ) {
+    		System.out.println( e.getMessage() );
+    	}
+    	
+    	// Test finger mode with keys that arrive nearly in
+    	// order. Each search starts close to the last node,
+    	// so it makes far fewer than log n comparisons.
+    	StudentTreeSet<Integer> fingered = new StudentTreeSet<Integer>( true, true );
+    	StudentTreeSet<Integer> plain = new StudentTreeSet<Integer>( true );
+    	for( int integer = 0; integer < 100000; integer++ ) {
+    		int key = integer + ( integer * 7 ) % 5;
+    		fingered.add( key );
+    		plain.add( key );
+    	}
+    	fingered.remove( 500 );
+    	plain.remove( 500 );
+    	boolean found = true;
+    	for( int integer = 0; integer < 100000; integer++ ) {
+    		found &= fingered.contains( integer ) == plain.contains( integer );
+    	}
+    	System.out.println( fingered.equals( plain ) + " " + found );   // true true
+    	System.out.println( fingered.fingerHits() * 100 / fingered.fingerSearches() + "% " +
+    			( fingered.fingerDistance() < 8 ) );   // 99% true
+    	
+    	// Test that the finger does not outlive clear(),
+    	// so a refilled tree loses no elements
+    	fingered = new StudentTreeSet<Integer>( false, true );
+    	for( int integer = 0; integer < 10; integer++ ) {
+    		fingered.add( integer );
+    	}
+    	fingered.clear();
+    	for( int integer = 100; integer < 200; integer++ ) {
+    		fingered.add( integer );
+    	}
+    	found = fingered.size() == 100;
+    	for( int integer = 100; integer < 200; integer++ ) {
+    		found &= fingered.contains( integer );
+    	}
+    	System.out.println( found + " " + fingered.first() + " " + fingered.last() );   // true 100 199
+    	
+    	// Test a tree in the reverse order, and one ordered
+    	// by a cached sort key with ties broken naturally
+    	StudentTreeSet<String> reversed = new StudentTreeSet<String>( Collections.reverseOrder() );
+    	StudentTreeSet<String> keyed = new StudentTreeSet<String>( StudentTreeSet::prefixKey, null );
+    	for( String string : new String[] { "pear", "apple", "fig", "applesauce", "apples" } ) {
+    		reversed.add( string );
+    		keyed.add( string );
+    	}
+    	System.out.println( reversed );   // [pear, fig, applesauce, apples, apple]
+    	System.out.println( keyed );   // [apple, apples, applesauce, fig, pear]
+    	System.out.println( keyed.contains( "applesauce" ) + " " + keyed.contains( "applesa" ) );   // true false
+    	System.out.println( reversed.ceiling( "b" ) + " " + keyed.ceiling( "b" ) );   // applesauce fig
+    	
+    	// Test the bounded toString() and writing the
+    	// elements as text and as bytes to a channel
+    	System.out.println( tree.toString( 3 ) );   // [1, 2, 3, ... 197 more]
+    	StringWriter writer = new StringWriter();
+    	tree.writeTo( writer );
+    	System.out.println( writer.toString().equals( new ArrayList<Integer>( tree ).toString() ) );   // true
+    	bytes.reset();
+    	tree.writeTo( Channels.newChannel( bytes ), ElementCodec.INTEGER );
+    	copy = StudentTreeSet.readFrom( new ByteArrayInputStream( bytes.toByteArray() ), ElementCodec.INTEGER );
+    	System.out.println( copy.equals( tree ) + " " + bytes.size() );   // true 812
+    	
     	// Test the toString() method
     	System.out.println( tree );
     }
@@ -0,0 +1,420 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A benchmark harness that compares StudentTreeSet against
+ * java.util.TreeSet. Every measurement is split into warmup
+ * rounds, which give the JIT compiler time to settle, and
+ * measured rounds, which are the only ones reported. Nothing
+ * is printed while a round is being timed. Alongside the time,
+ * it reports how many bytes the timed part of each round 
+ * allocated, so that allocation on the hot paths can be checked.
+ *
+ * Usage:
+ *   java StudentTreeSetBenchmark [-sizes 1000,10000]
+ *        [-ops add,addAll,contains,mixed,iterators,iterate,toString,clear,refill]
+ *        [-dists sequential,random,reverse,duplicates]
+ *        [-impls student,scapegoat,pooled,eager,lazy,adaptive,compact,int,frozen,frozenint,java]
+ *        [-warmup 5] [-rounds 10]
+ *
+ * The frozen implementations are read only, so only
+ * contains, iterate and toString are measured for them.
+ * The mixed operation searches for every key and removes
+ * and adds back every sixteenth one, and refill clears a
+ * filled set and adds every key again. The iterators operation
+ * creates one iterator per key and keeps them all, and then
+ * removes and adds back every key, so it shows whether
+ * writes slow down while many iterators are alive. The eager, lazy and
+ * adaptive implementations are scapegoat trees with the
+ * balance policy of that name, and pooled is a scapegoat
+ * tree that keeps its nodes in a pool.
+ * For the most repeatable numbers run each implementation
+ * in its own JVM, for example with "-impls student" and
+ * then "-impls java".
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ */
+public class StudentTreeSetBenchmark {
+
+	// The operations that can be measured
+	private static final String[] OPERATIONS =
+		{ "add", "addAll", "contains", "mixed", "iterators", "iterate", "toString", "clear",
+		  "refill" };
+
+	// The key distributions that can be measured
+	private static final String[] DISTRIBUTIONS =
+		{ "sequential", "random", "reverse", "duplicates" };
+
+	// The implementations that can be measured
+	private static final String[] IMPLEMENTATIONS =
+		{ "student", "scapegoat", "pooled", "eager", "lazy", "adaptive", "compact", "int",
+		  "frozen", "frozenint", "java" };
+
+	// The default sizes, from 1K to 10M elements
+	private static final int[] SIZES =
+		{ 1000, 10000, 100000, 1000000, 10000000 };
+
+	// Seed for the random distributions, so that every
+	// run measures exactly the same keys
+	private static final long SEED = 42L;
+
+	// Results are written here so the JIT compiler
+	// cannot remove the measured work
+	static volatile long sink;
+
+	// Bytes allocated by the timed part of the last round
+	static long allocated;
+
+	// Counts the bytes allocated by this thread, or null
+	// if the JVM cannot report them
+	private static final com.sun.management.ThreadMXBean THREADS =
+		ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean ?
+		( com.sun.management.ThreadMXBean ) ManagementFactory.getThreadMXBean() : null;
+
+	/**
+	 * This method returns how many bytes this thread
+	 * has allocated so far, or 0 if that is unknown.
+	 * @return   long   the bytes allocated by this thread
+	 */
+	static long allocatedBytes() {
+		if( THREADS == null ) {
+			return 0;
+		}
+		return THREADS.getThreadAllocatedBytes( Thread.currentThread().getId() );
+	}
+
+	/**
+	 * This method creates the keys for a given distribution.
+	 * The duplicate heavy distribution draws every key from a
+	 * range sixteen times smaller than the number of keys.
+	 * @param    distribution   the name of the distribution
+	 * @param    size           the number of keys
+	 * @return   Integer[]      the keys in insertion order
+	 */
+	static Integer[] keys( String distribution, int size ) {
+		Integer[] keys = new Integer[size];
+		Random random = new Random( SEED );
+
+		// Fill the array according to the distribution
+		for( int index = 0; index < size; index++ ) {
+			switch( distribution ) {
+			case "sequential":
+				keys[index] = index;
+				break;
+			case "reverse":
+				keys[index] = size - 1 - index;
+				break;
+			case "duplicates":
+				keys[index] = random.nextInt( Math.max( 1, size / 16 ) );
+				break;
+			default:
+				keys[index] = index;
+			}
+		}
+
+		// Random keys are a shuffled permutation
+		if( distribution.equals( "random" ) ) {
+			for( int index = size - 1; index > 0; index-- ) {
+				int other = random.nextInt( index + 1 );
+				Integer temp = keys[index];
+				keys[index] = keys[other];
+				keys[other] = temp;
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * This method creates an empty set of the given implementation.
+	 * @param    implementation   "student", "scapegoat", "pooled", "eager",
+	 *                            "lazy", "adaptive", "compact", "int" or "java"
+	 * @return   Set<Integer>     an empty set
+	 */
+	static Set<Integer> newSet( String implementation ) {
+		if( implementation.equals( "student" ) ) {
+			return new StudentTreeSet<Integer>();
+		}
+		if( implementation.equals( "scapegoat" ) ) {
+			return new StudentTreeSet<Integer>( true );
+		}
+		if( implementation.equals( "pooled" ) ) {
+			StudentTreeSet<Integer> set = new StudentTreeSet<Integer>( true );
+			set.enablePool( 0 );
+			return set;
+		}
+		if( implementation.equals( "eager" ) ) {
+			return new StudentTreeSet<Integer>( true, false, BalancePolicy.EAGER );
+		}
+		if( implementation.equals( "lazy" ) ) {
+			return new StudentTreeSet<Integer>( true, false, BalancePolicy.LAZY );
+		}
+		if( implementation.equals( "adaptive" ) ) {
+			return new StudentTreeSet<Integer>( true, false, BalancePolicy.ADAPTIVE );
+		}
+		if( implementation.equals( "compact" ) ) {
+			return new StudentCompactTreeSet<Integer>();
+		}
+		if( implementation.equals( "int" ) ) {
+			return new StudentIntTreeSet();
+		}
+		return new TreeSet<Integer>();
+	}
+
+	/**
+	 * This method creates a set and adds every key to it.
+	 * A frozen set is filled as a tree and then frozen.
+	 * @param    implementation   one of IMPLEMENTATIONS
+	 * @param    keys             the keys to add
+	 * @return   Set<Integer>     the filled set
+	 */
+	static Set<Integer> fill( String implementation, Integer[] keys ) {
+		if( implementation.equals( "frozen" ) ) {
+			return ( ( StudentTreeSet<Integer> ) fill( "scapegoat", keys ) ).freeze();
+		}
+		if( implementation.equals( "frozenint" ) ) {
+			return ( ( StudentIntTreeSet ) fill( "int", keys ) ).freeze();
+		}
+		Set<Integer> set = newSet( implementation );
+		for( Integer key : keys ) {
+			set.add( key );
+		}
+		return set;
+	}
+	
+	/**
+	 * This method returns true if an implementation
+	 * cannot measure an operation, because it is read
+	 * only and the operation changes the set.
+	 * @param    operation        the operation to measure
+	 * @param    implementation   one of IMPLEMENTATIONS
+	 * @return   boolean          true if it is skipped
+	 */
+	static boolean skipped( String operation, String implementation ) {
+		return implementation.startsWith( "frozen" ) && ( operation.startsWith( "add" ) ||
+				operation.equals( "mixed" ) || operation.equals( "iterators" ) ||
+				operation.equals( "clear" ) ||
+				operation.equals( "refill" ) );
+	}
+
+	/**
+	 * This method runs one round of an operation and returns
+	 * how long the timed part took in nanoseconds. Any set
+	 * the operation needs is built before the clock starts.
+	 * The bytes allocated by the timed part are left in allocated.
+	 * @param    operation        the operation to measure
+	 * @param    implementation   one of IMPLEMENTATIONS
+	 * @param    keys             the keys of the distribution
+	 * @return   long             the elapsed time in nanoseconds
+	 */
+	static long round( String operation, String implementation, Integer[] keys ) {
+		long result = 0;
+		long start;
+		long end;
+		long bytes;
+
+		// Adding is measured from an empty set
+		if( operation.equals( "add" ) ) {
+			Set<Integer> set = newSet( implementation );
+			bytes = allocatedBytes();
+			start = System.nanoTime();
+			for( Integer key : keys ) {
+				if( set.add( key ) ) {
+					result++;
+				}
+			}
+			end = System.nanoTime();
+			bytes = allocatedBytes() - bytes;
+		}
+
+		// Adding all keys at once is also
+		// measured from an empty set
+		else if( operation.equals( "addAll" ) ) {
+			Set<Integer> set = newSet( implementation );
+			List<Integer> list = Arrays.asList( keys );
+			bytes = allocatedBytes();
+			start = System.nanoTime();
+			set.addAll( list );
+			result = set.size();
+			end = System.nanoTime();
+			bytes = allocatedBytes() - bytes;
+		}
+
+		// Writing while many iterators are alive is
+		// measured after they have been created
+		else if( operation.equals( "iterators" ) ) {
+			Set<Integer> set = fill( implementation, keys );
+			List<Iterator<Integer>> iterators = new ArrayList<Iterator<Integer>>( keys.length );
+			for( int index = 0; index < keys.length; index++ ) {
+				iterators.add( set.iterator() );
+			}
+			bytes = allocatedBytes();
+			start = System.nanoTime();
+			for( Integer key : keys ) {
+				if( set.remove( key ) && set.add( key ) ) {
+					result++;
+				}
+			}
+			end = System.nanoTime();
+			bytes = allocatedBytes() - bytes;
+			result += iterators.size();
+		}
+
+		// Every other operation is measured on a filled set
+		else{
+			Set<Integer> set = fill( implementation, keys );
+			bytes = allocatedBytes();
+			start = System.nanoTime();
+			switch( operation ) {
+			case "contains":
+				for( Integer key : keys ) {
+					if( set.contains( key ) ) {
+						result++;
+					}
+				}
+				break;
+			case "mixed":
+				for( int index = 0; index < keys.length; index++ ) {
+					if( set.contains( keys[index] ) ) {
+						result++;
+					}
+					if( ( index & 15 ) == 0 && set.remove( keys[index] ) ) {
+						set.add( keys[index] );
+					}
+				}
+				break;
+			case "iterate":
+				Iterator<Integer> iterator = set.iterator();
+				while( iterator.hasNext() ) {
+					result += iterator.next();
+				}
+				break;
+			case "toString":
+				result = set.toString().length();
+				break;
+			case "clear":
+				set.clear();
+				result = set.size();
+				break;
+			case "refill":
+				set.clear();
+				for( Integer key : keys ) {
+					if( set.add( key ) ) {
+						result++;
+					}
+				}
+				break;
+			}
+			end = System.nanoTime();
+			bytes = allocatedBytes() - bytes;
+		}
+		allocated = bytes;
+		sink += result;
+		return end - start;
+	}
+
+	/**
+	 * This method splits a comma separated argument.
+	 * @param    argument   the comma separated argument
+	 * @return   String[]   the separate values
+	 */
+	private static String[] split( String argument ) {
+		return argument.split( "," );
+	}
+
+	/**
+	 * The main method. It runs every combination of operation,
+	 * distribution, size and implementation that was selected
+	 * on the command line, and prints one line for each.
+	 * @param   args   command line arguments, see the class comment
+	 */
+	public static void main( String [] args ) {
+		String[] operations = OPERATIONS;
+		String[] distributions = DISTRIBUTIONS;
+		String[] implementations = IMPLEMENTATIONS;
+		int[] sizes = SIZES;
+		int warmup = 5;
+		int rounds = 10;
+
+		// Read the command line arguments
+		for( int arg = 0; arg + 1 < args.length; arg += 2 ) {
+			switch( args[arg] ) {
+			case "-ops":
+				operations = split( args[arg + 1] );
+				break;
+			case "-dists":
+				distributions = split( args[arg + 1] );
+				break;
+			case "-impls":
+				implementations = split( args[arg + 1] );
+				break;
+			case "-sizes":
+				String[] values = split( args[arg + 1] );
+				sizes = new int[values.length];
+				for( int value = 0; value < values.length; value++ ) {
+					sizes[value] = Integer.parseInt( values[value] );
+				}
+				break;
+			case "-warmup":
+				warmup = Integer.parseInt( args[arg + 1] );
+				break;
+			case "-rounds":
+				rounds = Integer.parseInt( args[arg + 1] );
+				break;
+			default:
+				System.err.println( "Unknown option " + args[arg] );
+			}
+		}
+
+		System.out.printf( "%-9s %-9s %-11s %9s %12s %12s %10s%n",
+				"impl", "op", "dist", "size", "ns/op", "error", "B/op" );
+
+		// Run every selected combination
+		for( int size : sizes ) {
+			for( String distribution : distributions ) {
+				Integer[] keys = keys( distribution, size );
+				for( String operation : operations ) {
+					for( String implementation : implementations ) {
+						if( skipped( operation, implementation ) ) {
+							continue;
+						}
+
+						// Warm up without recording anything
+						for( int round = 0; round < warmup; round++ ) {
+							round( operation, implementation, keys );
+						}
+
+						// Record the measured rounds
+						List<Double> times = new ArrayList<Double>();
+						long bytes = 0;
+						for( int round = 0; round < rounds; round++ ) {
+							long elapsed = round( operation, implementation, keys );
+							times.add( (double) elapsed / size );
+							bytes += allocated;
+						}
+
+						// Report the mean and standard deviation
+						double mean = 0;
+						for( double time : times ) {
+							mean += time;
+						}
+						mean /= times.size();
+						double variance = 0;
+						for( double time : times ) {
+							variance += ( time - mean ) * ( time - mean );
+						}
+						double error = Math.sqrt( variance / Math.max( 1, times.size() - 1 ) );
+						System.out.printf( "%-9s %-9s %-11s %9d %12.2f %12.2f %10.2f%n",
+								implementation, operation, distribution, size, mean, error,
+								(double) bytes / rounds / size );
+					}
+				}
+			}
+		}
+	}
+}
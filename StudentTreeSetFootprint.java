@@ -0,0 +1,203 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A report of how many bytes of heap each set takes per
+ * element, not counting the elements themselves, which every
+ * set shares. If JOL (org.openjdk.jol:jol-core) is on the class
+ * path, it walks the object graph of every set and reports the
+ * exact layout of one node. Without it, the report falls back
+ * to the heap used after a garbage collection, which is close
+ * for large sets but not exact.
+ *
+ * Usage:
+ *   java -cp .:jol-core.jar StudentTreeSetFootprint [-size 1000000]
+ *        [-impls java,student,keyed,compact,int,frozen]
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ */
+public class StudentTreeSetFootprint {
+
+	// The implementations that can be measured
+	private static final String[] IMPLEMENTATIONS =
+		{ "java", "student", "keyed", "compact", "int", "frozen" };
+
+	// Seed for the keys, so that every run
+	// measures exactly the same sets
+	private static final long SEED = 42L;
+
+	// GraphLayout.parseInstance() and totalSize() of JOL,
+	// or null if JOL is not on the class path
+	private static final Method PARSE_INSTANCE;
+	private static final Method TOTAL_SIZE;
+
+	// ClassLayout.parseClass() and toPrintable() of JOL
+	private static final Method PARSE_CLASS;
+	private static final Method TO_PRINTABLE;
+
+	static {
+		Method parseInstance = null;
+		Method totalSize = null;
+		Method parseClass = null;
+		Method toPrintable = null;
+
+		// The fields of lambdas, such as a comparator, are in
+		// hidden classes that JOL can only read this way
+		if( System.getProperty( "jol.magicFieldOffset" ) == null ) {
+			System.setProperty( "jol.magicFieldOffset", "true" );
+		}
+		try {
+			Class<?> graph = Class.forName( "org.openjdk.jol.info.GraphLayout" );
+			parseInstance = graph.getMethod( "parseInstance", Object[].class );
+			totalSize = graph.getMethod( "totalSize" );
+			Class<?> layout = Class.forName( "org.openjdk.jol.info.ClassLayout" );
+			parseClass = layout.getMethod( "parseClass", Class.class );
+			toPrintable = layout.getMethod( "toPrintable" );
+		}
+		catch( ReflectiveOperationException e ) {
+			parseInstance = null;
+		}
+		PARSE_INSTANCE = parseInstance;
+		TOTAL_SIZE = totalSize;
+		PARSE_CLASS = parseClass;
+		TO_PRINTABLE = toPrintable;
+	}
+
+	/**
+	 * This method creates a set of the given implementation
+	 * holding the keys.
+	 * @param    implementation   one of IMPLEMENTATIONS
+	 * @param    keys             the keys to add
+	 * @return   Set<Integer>     the filled set
+	 */
+	static Set<Integer> fill( String implementation, Integer[] keys ) {
+		Set<Integer> set;
+		switch( implementation ) {
+		case "student":
+			set = new StudentTreeSet<Integer>( true );
+			break;
+		case "keyed":
+			set = new StudentTreeSet<Integer>( Integer::longValue, null );
+			break;
+		case "compact":
+			set = new StudentCompactTreeSet<Integer>();
+			break;
+		case "int":
+			set = new StudentIntTreeSet();
+			break;
+		case "frozen":
+			return ( ( StudentTreeSet<Integer> ) fill( "student", keys ) ).freeze();
+		default:
+			set = new TreeSet<Integer>();
+		}
+		for( Integer key : keys ) {
+			set.add( key );
+		}
+		return set;
+	}
+
+	/**
+	 * This method returns how many bytes are reachable from
+	 * the given objects, as JOL counts them.
+	 * @param    roots   the objects to start from
+	 * @return   long    the number of bytes
+	 */
+	private static long reachable( Object... roots ) throws ReflectiveOperationException {
+		Object layout = PARSE_INSTANCE.invoke( null, ( Object ) roots );
+		return ( Long ) TOTAL_SIZE.invoke( layout );
+	}
+
+	/**
+	 * This method returns how many bytes of heap are
+	 * in use after collecting the garbage.
+	 * @param    memory   the memory bean of the JVM
+	 * @return   long     the number of bytes in use
+	 */
+	private static long usedHeap( MemoryMXBean memory ) {
+		for( int round = 0; round < 4; round++ ) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * This method returns how many bytes a set of the
+	 * given implementation takes beyond its keys.
+	 * @param    implementation   one of IMPLEMENTATIONS
+	 * @param    keys             the keys of the set
+	 * @return   long             the number of bytes
+	 */
+	static long footprint( String implementation, Integer[] keys ) throws ReflectiveOperationException {
+		if( PARSE_INSTANCE != null ) {
+			Set<Integer> set = fill( implementation, keys );
+			return reachable( set, keys ) - reachable( ( Object ) keys );
+		}
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long before = usedHeap( memory );
+		Set<Integer> set = fill( implementation, keys );
+		long after = usedHeap( memory );
+
+		// Keep the set alive until it has been measured
+		if( set.size() < 0 ) {
+			System.out.println( set );
+		}
+		return after - before;
+	}
+
+	/**
+	 * The main method. It prints the bytes per element of
+	 * each selected implementation, and the layout of the
+	 * nodes if JOL is on the class path.
+	 * @param   args   command line arguments, see the class comment
+	 * @throws  ReflectiveOperationException   if JOL cannot be called
+	 */
+	public static void main( String [] args ) throws ReflectiveOperationException {
+		int size = 1000000;
+		String[] implementations = IMPLEMENTATIONS;
+
+		// Read the command line arguments
+		for( int arg = 0; arg + 1 < args.length; arg += 2 ) {
+			switch( args[arg] ) {
+			case "-size":
+				size = Integer.parseInt( args[arg + 1] );
+				break;
+			case "-impls":
+				implementations = args[arg + 1].split( "," );
+				break;
+			default:
+				System.err.println( "Unknown option " + args[arg] );
+			}
+		}
+
+		// Random keys in a shuffled order
+		Integer[] keys = new Integer[size];
+		Random random = new Random( SEED );
+		for( int index = 0; index < size; index++ ) {
+			keys[index] = index;
+		}
+		for( int index = size - 1; index > 0; index-- ) {
+			int other = random.nextInt( index + 1 );
+			Integer temp = keys[index];
+			keys[index] = keys[other];
+			keys[other] = temp;
+		}
+
+		if( PARSE_INSTANCE != null ) {
+			System.out.println( TO_PRINTABLE.invoke( PARSE_CLASS.invoke( null, Node.class ) ) );
+			System.out.println( TO_PRINTABLE.invoke( PARSE_CLASS.invoke( null, KeyedNode.class ) ) );
+		}
+		else{
+			System.out.println( "JOL is not on the class path, measuring the used heap." );
+		}
+		System.out.printf( "%-9s %9s %14s %12s%n", "impl", "size", "bytes", "B/element" );
+		for( String implementation : implementations ) {
+			long bytes = footprint( implementation, keys );
+			System.out.printf( "%-9s %9d %14d %12.2f%n",
+					implementation, size, bytes, (double) bytes / size );
+		}
+	}
+}
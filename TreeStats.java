@@ -0,0 +1,258 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class records how a StudentTreeSet behaves: how
+ * often it is rebuilt and for how long, how deep new nodes
+ * are placed, how many comparisons its searches make and
+ * how many iterators walk it. A tree only keeps statistics
+ * after StudentTreeSet.enableStats() has been called, and
+ * costs one null check per operation otherwise.
+ *
+ * The statistics are updated by the thread using the tree
+ * and are not synchronized, so they may be read while they
+ * change. An iterator is only known to be finished when it
+ * reaches its end, so one dropped early stays among the live
+ * iterators, and reset() leaves that count as it is. They can be watched through JMX once registered,
+ * and every rebuild is also a RebuildEvent in a Java Flight
+ * Recorder recording.
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ */
+public class TreeStats implements TreeStatsMXBean {
+
+	// The number of entries of each histogram
+	static final int BUCKETS = 64;
+
+	// The rebuilds, the number of nodes they relinked
+	// and the number of them that rebuilt the whole tree
+	private long rebuilds = 0;
+	private long rebuiltNodes = 0;
+	private long wholeRebuilds = 0;
+
+	// The total and the longest time spent rebuilding,
+	// and the rebuilds counted by the power of two
+	// just above the time they took
+	private long rebuildNanos = 0;
+	private long maxRebuildNanos = 0;
+	private final long[] rebuildHistogram = new long[ BUCKETS ];
+
+	// The elements added one at a time, counted
+	// by the depth they were placed at
+	private long inserts = 0;
+	private final long[] depthHistogram = new long[ BUCKETS ];
+
+	// The searches and the comparisons they made
+	private long searches = 0;
+	private long comparisons = 0;
+
+	// The iterators created, and those
+	// that have not reached their end
+	private long iterators = 0;
+	private long liveIterators = 0;
+
+	/**
+	 * This method records a rebuild.
+	 * @param    nodes   the number of nodes relinked
+	 * @param    nanos   the time it took in nanoseconds
+	 * @param    whole   true if the whole tree was rebuilt
+	 */
+	void rebuilt( int nodes, long nanos, boolean whole ) {
+		rebuilds++;
+		rebuiltNodes += nodes;
+		if( whole ) {
+			wholeRebuilds++;
+		}
+		rebuildNanos += nanos;
+		if( nanos > maxRebuildNanos ) {
+			maxRebuildNanos = nanos;
+		}
+		rebuildHistogram[ 64 - Long.numberOfLeadingZeros( Math.max( nanos, 0 ) ) ]++;
+	}
+
+	/**
+	 * This method records that an element was
+	 * added at the given depth.
+	 * @param    depth   the depth of the new node
+	 */
+	void inserted( int depth ) {
+		inserts++;
+		depthHistogram[ Math.min( depth, BUCKETS - 1 ) ]++;
+	}
+
+	/**
+	 * This method records a search.
+	 * @param    count   the number of comparisons it made
+	 */
+	void searched( int count ) {
+		searches++;
+		comparisons += count;
+	}
+
+	/**
+	 * This method records that an iterator was created.
+	 */
+	void iteratorCreated() {
+		iterators++;
+		liveIterators++;
+	}
+
+	/**
+	 * This method records that an iterator reached its end.
+	 */
+	void iteratorFinished() {
+		liveIterators--;
+	}
+
+	public long getRebuildCount() {
+		return rebuilds;
+	}
+
+	public long getWholeRebuildCount() {
+		return wholeRebuilds;
+	}
+
+	public long getRebuiltNodes() {
+		return rebuiltNodes;
+	}
+
+	public long getRebuildNanos() {
+		return rebuildNanos;
+	}
+
+	public long getMaxRebuildNanos() {
+		return maxRebuildNanos;
+	}
+
+	public long getRebuildNanosP99() {
+		return percentile( rebuildHistogram, 0.99 );
+	}
+
+	public long[] getRebuildHistogram() {
+		return rebuildHistogram.clone();
+	}
+
+	public long getInserts() {
+		return inserts;
+	}
+
+	public long[] getDepthHistogram() {
+		return depthHistogram.clone();
+	}
+
+	public long getSearches() {
+		return searches;
+	}
+
+	public double getComparisonsPerSearch() {
+		return searches == 0 ? 0 : ( double ) comparisons / searches;
+	}
+
+	public long getIteratorsCreated() {
+		return iterators;
+	}
+
+	public long getLiveIterators() {
+		return liveIterators;
+	}
+
+	public void reset() {
+		rebuilds = rebuiltNodes = wholeRebuilds = 0;
+		rebuildNanos = maxRebuildNanos = 0;
+		inserts = searches = comparisons = 0;
+		iterators = 0;
+		Arrays.fill( rebuildHistogram, 0 );
+		Arrays.fill( depthHistogram, 0 );
+	}
+
+	/**
+	 * This method returns the smallest power of two that at
+	 * least the given fraction of the rebuild times are below.
+	 * @param    histogram   the rebuild histogram
+	 * @param    fraction    the fraction, between 0 and 1
+	 * @return   long        the time in nanoseconds, or 0
+	 *                       if there were no rebuilds
+	 */
+	private static long percentile( long[] histogram, double fraction ) {
+		long total = 0;
+		for( long count : histogram ) {
+			total += count;
+		}
+		long seen = 0;
+		for( int bucket = 0; bucket < histogram.length; bucket++ ) {
+			seen += histogram[bucket];
+			if( seen > 0 && seen >= fraction * total ) {
+				return bucket == 0 ? 0 : 1L << Math.min( bucket, 62 );
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * This method registers the statistics with the
+	 * platform MBean server under the given name.
+	 * @param    name   the name of the tree
+	 * @return   ObjectName   the name they were registered as
+	 * @throws   JMException   if they could not be registered
+	 */
+	public ObjectName register( String name ) throws JMException {
+		ObjectName objectName = new ObjectName( "StudentTreeSet:type=TreeStats,name=" +
+				ObjectName.quote( name ) );
+		ManagementFactory.getPlatformMBeanServer().registerMBean( this, objectName );
+		return objectName;
+	}
+
+	/**
+	 * This method returns a string holding the
+	 * main statistics.
+	 * @return   String   the statistics
+	 */
+	public String toString() {
+		return "rebuilds=" + rebuilds + " (whole " + wholeRebuilds + ", nodes " + rebuiltNodes +
+				", max " + maxRebuildNanos + "ns, p99 <" + getRebuildNanosP99() + "ns) inserts=" +
+				inserts + " searches=" + searches + String.format( " comparisons/search=%.2f",
+				getComparisonsPerSearch() ) + " iterators=" + iterators + " (live " + liveIterators + ")";
+	}
+
+	/**
+	 * The main method. It tests the different methods
+	 * of the TreeStats class.
+	 * @param   args   command line arguments ( not used )
+	 * @throws  JMException   if the statistics cannot be
+	 *                        registered or read through JMX
+	 */
+	public static void main( String [] args ) throws JMException {
+		StudentTreeSet<Integer> tree = new StudentTreeSet<Integer>( true );
+		TreeStats stats = tree.enableStats();
+
+		// Adding in order places every new node at the
+		// bottom of the right spine, so rebuilds happen
+		for( int integer = 0; integer < 1000; integer++ ) {
+			tree.add( integer );
+		}
+		System.out.println( stats.getInserts() + " " + ( stats.getRebuildCount() > 0 ) );   // 1000 true
+		// The height is an upper bound: partial rebuilds
+		// made the tree lower than the deepest node placed
+		System.out.println( tree.height() + " " + tree.maxHeight() );   // 18 10
+
+		// Test the searches and the iterators
+		tree.contains( 500 );
+		tree.remove( 1000 );
+		Iterator<Integer> iterator = tree.iterator();
+
+		// Run a second iterator to its end, so only
+		// the first one is still live
+		tree.iterator().forEachRemaining( integer -> { } );
+		System.out.println( stats.getSearches() + " " + stats.getIteratorsCreated() + " " +
+				stats.getLiveIterators() );   // 1001 2 1
+
+		// Register the statistics and read them through JMX
+		ObjectName name = stats.register( "main" );
+		System.out.println( ManagementFactory.getPlatformMBeanServer().getAttribute(
+				name, "Inserts" ) );   // 1000
+		System.out.println( iterator.hasNext() );   // true
+	}
+}
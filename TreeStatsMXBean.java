@@ -0,0 +1,105 @@
+/**
+ * The management interface of TreeStats, so the statistics
+ * of a tree can be watched through JMX once they have been
+ * registered with TreeStats.register().
+ * @author   Kyle McGlynn
+ * @author   Ajinkya Kolhe
+ */
+public interface TreeStatsMXBean {
+
+	/**
+	 * Returns the number of rebuilds, of a subtree
+	 * or of the whole tree.
+	 * @return   long   the number of rebuilds
+	 */
+	long getRebuildCount();
+
+	/**
+	 * Returns the number of rebuilds of the whole tree.
+	 * @return   long   the number of whole rebuilds
+	 */
+	long getWholeRebuildCount();
+
+	/**
+	 * Returns the number of nodes relinked by every rebuild.
+	 * @return   long   the number of nodes rebuilt
+	 */
+	long getRebuiltNodes();
+
+	/**
+	 * Returns the time spent rebuilding.
+	 * @return   long   the total time in nanoseconds
+	 */
+	long getRebuildNanos();
+
+	/**
+	 * Returns the time taken by the longest rebuild.
+	 * @return   long   the longest time in nanoseconds
+	 */
+	long getMaxRebuildNanos();
+
+	/**
+	 * Returns a time that 99% of the rebuilds took
+	 * no longer than, rounded up to a power of two.
+	 * @return   long   the time in nanoseconds
+	 */
+	long getRebuildNanosP99();
+
+	/**
+	 * Returns the histogram of the rebuild times. Entry
+	 * k counts the rebuilds that took at least 2^(k-1) and
+	 * less than 2^k nanoseconds.
+	 * @return   long[]   the histogram
+	 */
+	long[] getRebuildHistogram();
+
+	/**
+	 * Returns the number of elements added one at a time.
+	 * @return   long   the number of inserts
+	 */
+	long getInserts();
+
+	/**
+	 * Returns the histogram of the depths new nodes were
+	 * placed at. Entry k counts the nodes placed at depth
+	 * k, and the last entry counts every deeper one too.
+	 * @return   long[]   the histogram
+	 */
+	long[] getDepthHistogram();
+
+	/**
+	 * Returns the number of searches made by add(),
+	 * contains() and remove().
+	 * @return   long   the number of searches
+	 */
+	long getSearches();
+
+	/**
+	 * Returns the average number of comparisons a search made.
+	 * @return   double   the average, or 0 if there were none
+	 */
+	double getComparisonsPerSearch();
+
+	/**
+	 * Returns the number of iterators created.
+	 * @return   long   the number of iterators
+	 */
+	long getIteratorsCreated();
+
+	/**
+	 * Returns the number of iterators that were
+	 * created but have not reached their end. An iterator
+	 * that is dropped before its end, such as one a loop
+	 * breaks out of, stays counted for as long as the
+	 * statistics are kept.
+	 * @return   long   the number of live iterators
+	 */
+	long getLiveIterators();
+
+	/**
+	 * This method sets every statistic back to zero, except
+	 * the number of live iterators. Those iterators may still
+	 * reach their end, and would then be counted below zero.
+	 */
+	void reset();
+}